@@ -0,0 +1,83 @@
+package nifi.benchmark;
+
+import java.io.OutputStream;
+
+import nifi.SyntheticFrameGrabber;
+
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+
+/**
+ * Test frames and sinks shared by the benchmarks.
+ */
+final class BenchmarkFrames {
+
+    /**
+     * Hidden constructor.
+     */
+    private BenchmarkFrames() {
+    }
+
+    /**
+     * Generates a synthetic BGR frame.
+     *
+     * @param aResolution resolution, e.g. "1280x720"
+     * @return frame
+     * @throws FrameGrabber.Exception if the frame cannot be generated
+     */
+    static Frame frame(final String aResolution) throws FrameGrabber.Exception {
+
+        String[] size = aResolution.split("x");
+        SyntheticFrameGrabber grabber = new SyntheticFrameGrabber(Integer.parseInt(size[0]),
+                Integer.parseInt(size[1]), 0, false, 0);
+        grabber.start();
+        return grabber.grab();
+    }
+
+    /**
+     * Generates a synthetic BGR image in native memory of its own.
+     *
+     * @param aResolution resolution, e.g. "1280x720"
+     * @return image
+     * @throws FrameGrabber.Exception if the image cannot be generated
+     */
+    static Mat mat(final String aResolution) throws FrameGrabber.Exception {
+        return new OpenCVFrameConverter.ToMat().convert(frame(aResolution)).clone();
+    }
+
+    /**
+     * An output stream which only counts the bytes written into it.
+     */
+    static final class CountingStream extends OutputStream {
+
+        /** Number of bytes written. */
+        private long count;
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(final int aByte) {
+            count++;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void write(final byte[] aBytes, final int aOffset, final int aLength) {
+            count += aLength;
+        }
+
+        /**
+         * Returns the number of bytes written.
+         *
+         * @return byte count
+         */
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package nifi.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks, accepting the usual JMH command line options. Unless
+ * given otherwise, results are written as JSON into jmh-result.json, so that
+ * runs can be compared to track regressions.
+ */
+public final class BenchmarkRunner {
+
+    /** Default result file. */
+    private static final String RESULT_FILE = "jmh-result.json";
+
+    /**
+     * Hidden constructor.
+     */
+    private BenchmarkRunner() {
+    }
+
+    /**
+     * Entry point.
+     *
+     * @param aArgs JMH command line options
+     * @throws Exception if the options are invalid or the benchmarks fail
+     */
+    public static void main(final String[] aArgs) throws Exception {
+
+        CommandLineOptions commandLine = new CommandLineOptions(aArgs);
+        Options options = new OptionsBuilder()
+                .parent(commandLine)
+                .resultFormat(commandLine.getResultFormat().orElse(ResultFormatType.JSON))
+                .result(commandLine.getResult().orElse(RESULT_FILE))
+                .build();
+        new Runner(options).run();
+    }
+}
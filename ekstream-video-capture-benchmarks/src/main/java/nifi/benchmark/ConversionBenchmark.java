@@ -0,0 +1,107 @@
+package nifi.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import nifi.VideoCapturer;
+
+import org.bytedeco.javacpp.opencv_core.IplImage;
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.Java2DFrameConverter;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the frame conversions and the byte array helpers of the processor.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ConversionBenchmark {
+
+    /** Frame resolution. */
+    @Param({"1280x720", "1920x1080"})
+    public String resolution;
+
+    /** Converted frame. */
+    private Frame frame;
+
+    /** The frame as an IplImage. */
+    private IplImage iplImage;
+
+    /** Converter for Frames and Mats. */
+    private final OpenCVFrameConverter.ToMat matConverter = new OpenCVFrameConverter.ToMat();
+
+    /** Converter for Frames and BufferedImages. */
+    private final Java2DFrameConverter java2DConverter = new Java2DFrameConverter();
+
+    /**
+     * Prepares the frame.
+     *
+     * @throws FrameGrabber.Exception if the frame cannot be generated
+     */
+    @Setup
+    public void setUp() throws FrameGrabber.Exception {
+
+        frame = BenchmarkFrames.frame(resolution);
+        iplImage = new OpenCVFrameConverter.ToIplImage().convert(frame);
+    }
+
+    /**
+     * Encodes a frame with {@link VideoCapturer#toByteArray(Frame)}.
+     *
+     * @return encoded frame
+     * @throws IOException if the frame cannot be encoded
+     */
+    @Benchmark
+    public byte[] frameToByteArray() throws IOException {
+        return VideoCapturer.toByteArray(frame);
+    }
+
+    /**
+     * Encodes an image with {@link VideoCapturer#toByteArray(IplImage)}.
+     *
+     * @return encoded image
+     * @throws IOException if the image cannot be encoded
+     */
+    @Benchmark
+    public byte[] iplImageToByteArray() throws IOException {
+        return VideoCapturer.toByteArray(iplImage);
+    }
+
+    /**
+     * Wraps a frame into a Mat.
+     *
+     * @return image
+     */
+    @Benchmark
+    public Mat frameToMat() {
+        return matConverter.convert(frame);
+    }
+
+    /**
+     * Copies a frame into a BufferedImage.
+     *
+     * @return image
+     */
+    @Benchmark
+    public BufferedImage frameToBufferedImage() {
+        return java2DConverter.convert(frame);
+    }
+}
@@ -0,0 +1,82 @@
+package nifi.benchmark;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import nifi.ImageEncoder;
+import nifi.OutputFormat;
+
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacv.FrameGrabber;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the image encoders behind the output formats.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class EncoderBenchmark {
+
+    /** Frame resolution. */
+    @Param({"1280x720", "1920x1080"})
+    public String resolution;
+
+    /** Output format. */
+    @Param({"png", "jpeg", "webp", "raw-bgr"})
+    public String format;
+
+    /** Encoded image. */
+    private Mat image;
+
+    /** Image encoder. */
+    private ImageEncoder encoder;
+
+    /**
+     * Prepares the image and the encoder.
+     *
+     * @throws FrameGrabber.Exception if the image cannot be generated
+     */
+    @Setup
+    public void setUp() throws FrameGrabber.Exception {
+
+        image = BenchmarkFrames.mat(resolution);
+        encoder = OutputFormat.fromValue(format).createEncoder(95, 3);
+    }
+
+    /**
+     * Releases the image.
+     */
+    @TearDown
+    public void tearDown() {
+        image.release();
+    }
+
+    /**
+     * Encodes the image.
+     *
+     * @return encoded size, in bytes
+     * @throws IOException if the image cannot be encoded
+     */
+    @Benchmark
+    public long encode() throws IOException {
+
+        BenchmarkFrames.CountingStream stream = new BenchmarkFrames.CountingStream();
+        encoder.encode(image, stream);
+        return stream.getCount();
+    }
+}
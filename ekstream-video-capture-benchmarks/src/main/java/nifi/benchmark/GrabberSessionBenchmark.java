@@ -0,0 +1,136 @@
+package nifi.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import nifi.SyntheticFrameGrabber;
+
+import org.bytedeco.javacpp.avcodec;
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FFmpegFrameRecorder;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.FrameRecorder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the frame rate of grabbing a generated video file with FFmpeg,
+ * once from a grabber kept open between frames, as the processor does, and
+ * once opening and closing the file around every frame, as it used to.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GrabberSessionBenchmark {
+
+    /** Number of frames in the generated clip. */
+    private static final int CLIP_FRAMES = 100;
+
+    /** Frame rate of the generated clip. */
+    private static final double CLIP_FRAME_RATE = 25;
+
+    /** Frame resolution. */
+    @Param({"640x480", "1280x720"})
+    public String resolution;
+
+    /** Generated clip. */
+    private File clip;
+
+    /** Grabber of the clip. */
+    private FFmpegFrameGrabber grabber;
+
+    /**
+     * Generates the clip and opens the grabber.
+     *
+     * @throws IOException if the clip cannot be created
+     * @throws FrameRecorder.Exception if the clip cannot be recorded
+     * @throws FrameGrabber.Exception if the clip cannot be opened
+     */
+    @Setup
+    public void setUp() throws IOException, FrameRecorder.Exception, FrameGrabber.Exception {
+
+        clip = File.createTempFile("grabber-session", ".mp4");
+        String[] size = resolution.split("x");
+        SyntheticFrameGrabber source = new SyntheticFrameGrabber(Integer.parseInt(size[0]),
+                Integer.parseInt(size[1]), 0, false, 0);
+        FFmpegFrameRecorder recorder = new FFmpegFrameRecorder(clip, source.getImageWidth(),
+                source.getImageHeight());
+        recorder.setFormat("mp4");
+        recorder.setVideoCodec(avcodec.AV_CODEC_ID_MPEG4);
+        recorder.setFrameRate(CLIP_FRAME_RATE);
+        source.start();
+        recorder.start();
+        try {
+            for (int i = 0; i < CLIP_FRAMES; i++) {
+                recorder.record(source.grab());
+            }
+        } finally {
+            recorder.stop();
+            recorder.release();
+            source.stop();
+        }
+
+        grabber = new FFmpegFrameGrabber(clip);
+        grabber.start();
+    }
+
+    /**
+     * Closes the grabber and deletes the clip.
+     *
+     * @throws FrameGrabber.Exception if the grabber cannot be closed
+     * @throws IOException if the clip cannot be deleted
+     */
+    @TearDown
+    public void tearDown() throws FrameGrabber.Exception, IOException {
+
+        grabber.stop();
+        grabber.release();
+        Files.delete(clip.toPath());
+    }
+
+    /**
+     * Grabs the next frame from the open grabber, rewinding at the end of the clip.
+     *
+     * @return grabbed frame
+     * @throws FrameGrabber.Exception if the frame cannot be grabbed
+     */
+    @Benchmark
+    public Frame persistentSession() throws FrameGrabber.Exception {
+
+        Frame frame = grabber.grabImage();
+        if (frame == null) {
+            grabber.setFrameNumber(0);
+            frame = grabber.grabImage();
+        }
+        return frame;
+    }
+
+    /**
+     * Opens the clip, grabs its first frame and closes it again.
+     *
+     * @return grabbed frame
+     * @throws FrameGrabber.Exception if the frame cannot be grabbed
+     */
+    @Benchmark
+    public Frame sessionPerFrame() throws FrameGrabber.Exception {
+
+        grabber.restart();
+        return grabber.grabImage();
+    }
+}
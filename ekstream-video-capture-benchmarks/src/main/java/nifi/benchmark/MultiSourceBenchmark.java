@@ -0,0 +1,116 @@
+package nifi.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nifi.MultiVideoCapturer;
+import nifi.OverflowPolicy;
+import nifi.VideoCapturer;
+
+import org.apache.nifi.util.MockProcessSession;
+import org.apache.nifi.util.SharedSessionState;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the pipeline of {@link MultiVideoCapturer} over a growing number of
+ * unthrottled synthetic sources, each captured by its own worker, to show how
+ * the transferred frame rate scales with the sources drained by one trigger.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MultiSourceBenchmark {
+
+    /** Number of captured sources. */
+    @Param({"1", "2", "4", "8"})
+    public int sources;
+
+    /** Frame resolution of every source. */
+    @Param({"640x480", "1280x720"})
+    public String resolution;
+
+    /** Output format. */
+    @Param({"jpeg", "raw-bgr"})
+    public String format;
+
+    /** Frames transferred per trigger, over all sources. */
+    @Param({"1", "100"})
+    public String batchSize;
+
+    /** Mock framework configuring the processor. */
+    private TestRunner runner;
+
+    /** Benchmarked processor. */
+    private MultiVideoCapturer processor;
+
+    /** Session state shared by the triggers. */
+    private SharedSessionState sessionState;
+
+    /**
+     * Configures and schedules the processor.
+     */
+    @Setup
+    public void setUp() {
+
+        final StringBuilder captureSources = new StringBuilder();
+        for (int i = 0; i < sources; i++) {
+            captureSources.append("synthetic://").append(resolution).append("?fps=0&seed=").append(i).append('\n');
+        }
+        runner = TestRunners.newTestRunner(MultiVideoCapturer.class);
+        runner.setProperty(MultiVideoCapturer.CAPTURE_SOURCES, captureSources.toString());
+        runner.setProperty(VideoCapturer.FRAME_INTERVAL, "0");
+        runner.setProperty(VideoCapturer.SAVE_IMAGES, "false");
+        runner.setProperty(VideoCapturer.OVERFLOW_POLICY, OverflowPolicy.BLOCK.getValue());
+        runner.setProperty(VideoCapturer.OUTPUT_FORMAT, format);
+        runner.setProperty(VideoCapturer.FRAMES_PER_BATCH, batchSize);
+        runner.assertValid();
+        processor = (MultiVideoCapturer) runner.getProcessor();
+        sessionState = new SharedSessionState(processor, new AtomicLong());
+        processor.startCapture(runner.getProcessContext());
+    }
+
+    /**
+     * Stops the processor.
+     */
+    @TearDown
+    public void tearDown() {
+
+        processor.haltCapture();
+        processor.stopCapture();
+    }
+
+    /**
+     * Triggers the processor once.
+     *
+     * @param aCounters session commits and transferred frames, reported per second
+     * @return number of transferred flow files
+     */
+    @Benchmark
+    public int trigger(final OnTriggerBenchmark.Commits aCounters) {
+
+        MockProcessSession session = new MockProcessSession(sessionState, processor);
+        processor.onTrigger(runner.getProcessContext(), session);
+        int count = session.getFlowFilesForRelationship(VideoCapturer.REL_SUCCESS).size();
+        if (count > 0) {
+            aCounters.commits++;
+            aCounters.frames += count;
+        }
+        return count;
+    }
+}
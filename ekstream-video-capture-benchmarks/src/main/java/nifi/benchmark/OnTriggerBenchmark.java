@@ -0,0 +1,140 @@
+package nifi.benchmark;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import nifi.OverflowPolicy;
+import nifi.VideoCapturer;
+
+import org.apache.nifi.util.MockProcessSession;
+import org.apache.nifi.util.SharedSessionState;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs the whole capture-encode-transfer pipeline of {@link VideoCapturer}
+ * through the NiFi mock framework, fed by an unthrottled synthetic source.
+ * The processor is scheduled once for all triggers, as every run of the
+ * test runner would unschedule it and thereby halt capturing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OnTriggerBenchmark {
+
+    /** Frame resolution. */
+    @Param({"1280x720", "1920x1080"})
+    public String resolution;
+
+    /** Output format. */
+    @Param({"png", "jpeg", "raw-bgr"})
+    public String format;
+
+    /** Frames transferred per trigger. */
+    @Param({"1", "10", "100"})
+    public String batchSize;
+
+    /** Encoder threads, 1 to encode on the trigger thread and 0 for one per processor. */
+    @Param({"1", "0"})
+    public String encoderThreads;
+
+    /** Mock framework configuring the processor. */
+    private TestRunner runner;
+
+    /** Benchmarked processor. */
+    private VideoCapturer processor;
+
+    /** Session state shared by the triggers. */
+    private SharedSessionState sessionState;
+
+    /**
+     * Configures and schedules the processor.
+     */
+    @Setup
+    public void setUp() {
+
+        runner = TestRunners.newTestRunner(VideoCapturer.class);
+        runner.setProperty(VideoCapturer.CAPTURE_SOURCE, "synthetic://" + resolution + "?fps=0");
+        runner.setProperty(VideoCapturer.FRAME_INTERVAL, "0");
+        runner.setProperty(VideoCapturer.SAVE_IMAGES, "false");
+        runner.setProperty(VideoCapturer.OVERFLOW_POLICY, OverflowPolicy.BLOCK.getValue());
+        runner.setProperty(VideoCapturer.OUTPUT_FORMAT, format);
+        runner.setProperty(VideoCapturer.FRAMES_PER_BATCH, batchSize);
+        runner.setProperty(VideoCapturer.ENCODER_THREADS, encoderThreads);
+        runner.assertValid();
+        processor = (VideoCapturer) runner.getProcessor();
+        sessionState = new SharedSessionState(processor, new AtomicLong());
+        processor.startCapture(runner.getProcessContext());
+    }
+
+    /**
+     * Stops the processor.
+     */
+    @TearDown
+    public void tearDown() {
+
+        processor.haltCapture();
+        processor.stopCapture();
+    }
+
+    /**
+     * Triggers the processor once.
+     *
+     * @param aCounters session commits and transferred frames, reported per second
+     * @return number of transferred flow files
+     */
+    @Benchmark
+    public int trigger(final Commits aCounters) {
+
+        MockProcessSession session = new MockProcessSession(sessionState, processor);
+        processor.onTrigger(runner.getProcessContext(), session);
+        int count = session.getFlowFilesForRelationship(VideoCapturer.REL_SUCCESS).size();
+        if (count > 0) {
+            aCounters.commits++;
+            aCounters.frames += count;
+        }
+        return count;
+    }
+
+    /**
+     * Counts the session commits and transferred frames of the triggers,
+     * so that the commit rate is reported next to the trigger rate.
+     */
+    @State(Scope.Thread)
+    @AuxCounters
+    public static class Commits {
+
+        /** Number of triggers which committed transferred frames. */
+        public long commits;
+
+        /** Number of transferred frames. */
+        public long frames;
+
+        /**
+         * Resets the counters before every iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+
+            commits = 0;
+            frames = 0;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package nifi;
+
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import org.apache.nifi.logging.ComponentLog;
+import org.bytedeco.javacv.FrameGrabber;
+
+/**
+ * A capture source together with its grabber, frame buffer and capture worker.
+ */
+public class CaptureChannel {
+
+    /** Source id, set as an attribute of the transferred flow files. */
+    private final String id;
+
+    /** JavaCV frame grabber. */
+    private final FrameGrabber grabber;
+
+    /** Whether the source is recorded rather than live. */
+    private final boolean recorded;
+
+    /** Buffer of captured frames. */
+    private final FrameRingBuffer buffer;
+
+    /** Capture worker, null until the channel is started. */
+    private volatile FrameCaptureWorker worker;
+
+    /**
+     * Constructor.
+     *
+     * @param aId source id
+     * @param aGrabber frame grabber, not started yet
+     * @param aRecorded whether the source is recorded rather than live
+     * @param aBuffer frame buffer
+     */
+    public CaptureChannel(final String aId, final FrameGrabber aGrabber, final boolean aRecorded,
+            final FrameRingBuffer aBuffer) {
+
+        id = aId;
+        grabber = aGrabber;
+        recorded = aRecorded;
+        buffer = aBuffer;
+    }
+
+    /**
+     * Returns the source id.
+     *
+     * @return source id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Returns the frame buffer.
+     *
+     * @return frame buffer
+     */
+    public FrameRingBuffer getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Starts the grabber and a capture worker on the given executor.
+     *
+     * @param aPacer frame pacer of this channel
+     * @param aMode sampling mode of this channel
+     * @param aTransform frame transform of this channel, null to keep frames as grabbed
+     * @param aFilters frame filters of this channel
+     * @param aExecutor executor with a thread available for the worker
+     * @param aMetrics pipeline metrics
+     * @param aLogger logger
+     * @throws FrameGrabber.Exception if the grabber cannot be started
+     */
+    public void start(final FramePacer aPacer, final SamplingMode aMode, final FrameTransform aTransform,
+            final List<FrameFilter> aFilters, final Executor aExecutor, final CaptureMetrics aMetrics,
+            final ComponentLog aLogger) throws FrameGrabber.Exception {
+
+        final SamplingMode mode = aMode.configure(grabber);
+        grabber.start();
+        worker = new FrameCaptureWorker(grabber, recorded, mode, aPacer, aTransform, aFilters, buffer, aMetrics,
+                aLogger);
+        aExecutor.execute(worker);
+    }
+
+    /**
+     * Stops grabbing new frames, without waiting for the capture worker to
+     * finish. The buffered frames can still be drained.
+     */
+    public void halt() {
+
+        FrameCaptureWorker current = worker;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
+
+    /**
+     * Waits for the capture worker to finish after {@link #halt()}.
+     *
+     * @param aDeadline time to give up waiting, as given by {@link System#nanoTime()}
+     * @return true if the worker has finished or was never started
+     */
+    public boolean awaitHalted(final long aDeadline) {
+
+        FrameCaptureWorker current = worker;
+        return current == null || current.awaitTermination(aDeadline);
+    }
+
+    /**
+     * Releases the grabber and the buffered frames once the capture worker
+     * has finished. If it has not, both are left to the garbage collector
+     * rather than released while the worker may still be using them.
+     *
+     * @param aLogger logger
+     */
+    public void close(final ComponentLog aLogger) {
+
+        halt();
+        if (!awaitHalted(System.nanoTime())) {
+            aLogger.warn("Capture worker of source {} has not exited, its grabber is not released",
+                    new Object[] {id});
+            return;
+        }
+        try {
+            grabber.stop();
+            grabber.release();
+        } catch (FrameGrabber.Exception e) {
+            aLogger.error("Something went wrong with the video capture!", e);
+        }
+        buffer.release();
+    }
+}
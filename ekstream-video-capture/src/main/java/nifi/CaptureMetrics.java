@@ -0,0 +1,246 @@
+package nifi;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+
+/**
+ * Latency histograms of the capture pipeline stages and counters of the
+ * processed frames. Recording neither locks nor allocates, so it can be done
+ * on every frame.
+ */
+public class CaptureMetrics {
+
+    /**
+     * Stages of the capture pipeline.
+     */
+    public enum Stage {
+
+        /** Grabbing a frame from the source. */
+        GRAB,
+
+        /** Cropping, converting and resizing a sampled frame. */
+        TRANSFORM,
+
+        /** Deciding whether a sampled frame is worth transferring. */
+        FILTER,
+
+        /** Copying a grabbed frame into the frame buffer. */
+        BUFFER,
+
+        /** Encoding a frame into flow file content. */
+        ENCODE,
+
+        /** Saving an encoded frame into the archive. */
+        SAVE,
+
+        /** Committing a session. */
+        COMMIT
+    }
+
+    /** Highest recorded latency, in ns; longer ones are recorded as this value. */
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toNanos(1);
+
+    /** Number of significant decimal digits of the recorded latencies. */
+    private static final int SIGNIFICANT_DIGITS = 2;
+
+    /** Latency histograms, by stage. */
+    private final ConcurrentHistogram[] latencies = new ConcurrentHistogram[Stage.values().length];
+
+    /** Number of grabbed frames. */
+    private final LongAdder grabbed = new LongAdder();
+
+    /** Number of transferred frames. */
+    private final LongAdder emitted = new LongAdder();
+
+    /** Number of sampled frames rejected by a frame filter. */
+    private final LongAdder skipped = new LongAdder();
+
+    /** Number of frames dropped because a frame buffer was full. */
+    private final LongAdder dropped = new LongAdder();
+
+    /** Number of frames which could not be grabbed or transferred. */
+    private final LongAdder failed = new LongAdder();
+
+    /**
+     * Constructor.
+     */
+    public CaptureMetrics() {
+
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new ConcurrentHistogram(HIGHEST_LATENCY, SIGNIFICANT_DIGITS);
+        }
+    }
+
+    /**
+     * Records the latency of a stage.
+     *
+     * @param aStage pipeline stage
+     * @param aStartTime time the stage started, in ns of {@link System#nanoTime()}
+     */
+    public void record(final Stage aStage, final long aStartTime) {
+
+        long latency = System.nanoTime() - aStartTime;
+        latencies[aStage.ordinal()].recordValue(Math.max(0, Math.min(HIGHEST_LATENCY, latency)));
+    }
+
+    /**
+     * Counts a grabbed frame.
+     */
+    public void frameGrabbed() {
+        grabbed.increment();
+    }
+
+    /**
+     * Counts transferred frames.
+     *
+     * @param aCount number of frames
+     */
+    public void framesEmitted(final long aCount) {
+        emitted.add(aCount);
+    }
+
+    /**
+     * Counts sampled frames rejected by a frame filter.
+     *
+     * @param aCount number of frames
+     */
+    public void framesSkipped(final long aCount) {
+        skipped.add(aCount);
+    }
+
+    /**
+     * Counts frames dropped because a frame buffer was full.
+     *
+     * @param aCount number of frames
+     */
+    public void framesDropped(final long aCount) {
+        dropped.add(aCount);
+    }
+
+    /**
+     * Counts frames which could not be grabbed or transferred.
+     *
+     * @param aCount number of frames
+     */
+    public void framesFailed(final long aCount) {
+        failed.add(aCount);
+    }
+
+    /**
+     * Returns the number of grabbed frames.
+     *
+     * @return frame count
+     */
+    public long getFramesGrabbed() {
+        return grabbed.sum();
+    }
+
+    /**
+     * Returns the number of transferred frames.
+     *
+     * @return frame count
+     */
+    public long getFramesEmitted() {
+        return emitted.sum();
+    }
+
+    /**
+     * Returns the number of sampled frames rejected by a frame filter.
+     *
+     * @return frame count
+     */
+    public long getFramesSkipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * Returns the share of the sampled frames rejected by a frame filter.
+     *
+     * @return skip ratio, from 0 to 1
+     */
+    public double getSkipRatio() {
+
+        long rejected = getFramesSkipped();
+        long sampled = rejected + getFramesEmitted() + getFramesDropped();
+        return sampled == 0 ? 0 : (double) rejected / sampled;
+    }
+
+    /**
+     * Returns the number of frames dropped because a frame buffer was full.
+     *
+     * @return frame count
+     */
+    public long getFramesDropped() {
+        return dropped.sum();
+    }
+
+    /**
+     * Returns the number of frames which could not be grabbed or transferred.
+     *
+     * @return frame count
+     */
+    public long getFramesFailed() {
+        return failed.sum();
+    }
+
+    /**
+     * Returns how often a stage has been recorded.
+     *
+     * @param aStage pipeline stage
+     * @return count
+     */
+    public long getCount(final Stage aStage) {
+        return latencies[aStage.ordinal()].getTotalCount();
+    }
+
+    /**
+     * Returns a latency percentile of a stage.
+     *
+     * @param aStage pipeline stage
+     * @param aPercentile percentile, from 0 to 100
+     * @return latency, in ns
+     */
+    public long getLatency(final Stage aStage, final double aPercentile) {
+        return latencies[aStage.ordinal()].getValueAtPercentile(aPercentile);
+    }
+
+    /**
+     * Returns the maximum latency of a stage.
+     *
+     * @param aStage pipeline stage
+     * @return latency, in ns
+     */
+    public long getMaxLatency(final Stage aStage) {
+        return latencies[aStage.ordinal()].getMaxValue();
+    }
+
+    /**
+     * Summarizes the counters and the p50/p99/max latencies of all recorded stages, in microseconds.
+     *
+     * @return summary
+     */
+    @Override
+    public String toString() {
+
+        StringBuilder summary = new StringBuilder()
+                .append("grabbed=").append(getFramesGrabbed())
+                .append(", emitted=").append(getFramesEmitted())
+                .append(", skipped=").append(getFramesSkipped())
+                .append(String.format(" (%.1f%%)", 100 * getSkipRatio()))
+                .append(", dropped=").append(getFramesDropped())
+                .append(", failed=").append(getFramesFailed());
+        for (Stage stage : Stage.values()) {
+            if (getCount(stage) == 0) {
+                continue;
+            }
+            summary.append(", ").append(stage.name().toLowerCase())
+                    .append("[p50=").append(TimeUnit.NANOSECONDS.toMicros(getLatency(stage, 50)))
+                    .append(", p99=").append(TimeUnit.NANOSECONDS.toMicros(getLatency(stage, 99)))
+                    .append(", max=").append(TimeUnit.NANOSECONDS.toMicros(getMaxLatency(stage)))
+                    .append(']');
+        }
+        return summary.toString();
+    }
+}
@@ -0,0 +1,76 @@
+package nifi;
+
+import java.io.File;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FrameGrabber;
+
+/**
+ * Creates frame grabbers for the capture sources configured on the processors.
+ * A capture source is one of:
+ * <ul>
+ * <li>a device index, e.g. "0" for the default camera;</li>
+ * <li>a synthetic source, e.g. "synthetic://1280x720?fps=30&amp;format=gray",
+ * see {@link SyntheticFrameGrabber#fromSource(String)};</li>
+ * <li>a stream URL, e.g. "rtsp://camera/stream" or "http://camera/video.mjpg";</li>
+ * <li>a directory of images, replayed in file name order;</li>
+ * <li>a video file.</li>
+ * </ul>
+ */
+public final class CaptureSources {
+
+    /** Scheme of synthetic sources. */
+    public static final String SYNTHETIC_SCHEME = "synthetic://";
+
+    /**
+     * Hidden constructor.
+     */
+    private CaptureSources() {
+    }
+
+    /**
+     * Creates a grabber for a capture source. The grabber is not started.
+     *
+     * @param aSource capture source
+     * @return frame grabber
+     * @throws FrameGrabber.Exception if no grabber can be created
+     */
+    public static FrameGrabber createGrabber(final String aSource) throws FrameGrabber.Exception {
+
+        final String source = aSource.trim();
+        if (source.matches("\\d+")) {
+            if (FrameGrabber.getDefault() == null) {
+                throw new FrameGrabber.Exception("No camera grabber is available for capture source " + source);
+            }
+            return FrameGrabber.createDefault(Integer.parseInt(source));
+        }
+        if (source.startsWith(SYNTHETIC_SCHEME)) {
+            return SyntheticFrameGrabber.fromSource(source);
+        }
+        if (source.contains("://")) {
+            return new FFmpegFrameGrabber(source);
+        }
+        final File file = new File(source);
+        if (file.isDirectory()) {
+            return new ImageDirectoryFrameGrabber(file);
+        }
+        if (!file.isFile()) {
+            throw new FrameGrabber.Exception("No such capture source: " + source);
+        }
+        return new FFmpegFrameGrabber(file);
+    }
+
+    /**
+     * Checks whether a capture source is recorded, i.e. a video file or a
+     * directory of images, which is decoded faster than it was recorded
+     * rather than delivering frames as they happen.
+     *
+     * @param aSource capture source
+     * @return true if the source is recorded
+     */
+    public static boolean isRecorded(final String aSource) {
+
+        final String source = aSource.trim();
+        return !source.matches("\\d+") && !source.contains("://") && new File(source).exists();
+    }
+}
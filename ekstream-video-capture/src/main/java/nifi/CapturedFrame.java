@@ -0,0 +1,247 @@
+package nifi;
+
+import org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * A reusable holder of a captured video frame. The native image memory is
+ * allocated with the first frame and reused as long as the frame size stays the same.
+ */
+public class CapturedFrame {
+
+    /** Native image. */
+    private final Mat image = new Mat();
+
+    /** Time the frame was grabbed, in ns of {@link System#nanoTime()}. */
+    private long captureTime;
+
+    /** Time the frame was grabbed, in ms since the epoch. */
+    private long wallClockTime;
+
+    /** Timestamp reported by the grabber, in microseconds. */
+    private long timestamp;
+
+    /** Frame number reported by the grabber. */
+    private long frameNumber;
+
+    /** Whether the grabber reported the frame as a keyframe. */
+    private boolean keyFrame;
+
+    /** Perceptual hash of the image. */
+    private long perceptualHash;
+
+    /** Whether the perceptual hash has been computed. */
+    private boolean hashed;
+
+    /** Bounding boxes of the detected faces, as x, y, width and height each. */
+    private int[] faces = new int[0];
+
+    /** Number of detected faces, -1 if faces have not been detected. */
+    private int faceCount = -1;
+
+    /**
+     * Returns the native image.
+     *
+     * @return image
+     */
+    public Mat getImage() {
+        return image;
+    }
+
+    /**
+     * Returns the time the frame was grabbed.
+     *
+     * @return capture time, in ns of {@link System#nanoTime()}
+     */
+    public long getCaptureTime() {
+        return captureTime;
+    }
+
+    /**
+     * Sets the time the frame was grabbed.
+     *
+     * @param aCaptureTime capture time, in ns of {@link System#nanoTime()}
+     */
+    public void setCaptureTime(final long aCaptureTime) {
+        captureTime = aCaptureTime;
+    }
+
+    /**
+     * Returns the wall clock time the frame was grabbed.
+     *
+     * @return capture time, in ms since the epoch
+     */
+    public long getWallClockTime() {
+        return wallClockTime;
+    }
+
+    /**
+     * Sets the wall clock time the frame was grabbed.
+     *
+     * @param aWallClockTime capture time, in ms since the epoch
+     */
+    public void setWallClockTime(final long aWallClockTime) {
+        wallClockTime = aWallClockTime;
+    }
+
+    /**
+     * Returns the timestamp reported by the grabber.
+     *
+     * @return timestamp, in microseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Sets the timestamp reported by the grabber.
+     *
+     * @param aTimestamp timestamp, in microseconds
+     */
+    public void setTimestamp(final long aTimestamp) {
+        timestamp = aTimestamp;
+    }
+
+    /**
+     * Returns the frame number reported by the grabber.
+     *
+     * @return frame number
+     */
+    public long getFrameNumber() {
+        return frameNumber;
+    }
+
+    /**
+     * Sets the frame number reported by the grabber.
+     *
+     * @param aFrameNumber frame number
+     */
+    public void setFrameNumber(final long aFrameNumber) {
+        frameNumber = aFrameNumber;
+    }
+
+    /**
+     * Returns whether the grabber reported the frame as a keyframe.
+     *
+     * @return true for keyframes
+     */
+    public boolean isKeyFrame() {
+        return keyFrame;
+    }
+
+    /**
+     * Sets whether the grabber reported the frame as a keyframe.
+     *
+     * @param aKeyFrame true for keyframes
+     */
+    public void setKeyFrame(final boolean aKeyFrame) {
+        keyFrame = aKeyFrame;
+    }
+
+    /**
+     * Returns whether the perceptual hash of the image has been computed.
+     *
+     * @return true if the frame has a perceptual hash
+     */
+    public boolean hasPerceptualHash() {
+        return hashed;
+    }
+
+    /**
+     * Returns the perceptual hash of the image.
+     *
+     * @return perceptual hash, only meaningful if {@link #hasPerceptualHash()}
+     */
+    public long getPerceptualHash() {
+        return perceptualHash;
+    }
+
+    /**
+     * Sets the perceptual hash of the image.
+     *
+     * @param aPerceptualHash perceptual hash
+     */
+    public void setPerceptualHash(final long aPerceptualHash) {
+
+        perceptualHash = aPerceptualHash;
+        hashed = true;
+    }
+
+    /**
+     * Returns the number of detected faces.
+     *
+     * @return face count, -1 if faces have not been detected
+     */
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    /**
+     * Returns the bounding boxes of the detected faces.
+     *
+     * @return x, y, width and height of each face, back to back; only the first
+     *         {@link #getFaceCount()} boxes are meaningful
+     */
+    public int[] getFaces() {
+        return faces;
+    }
+
+    /**
+     * Sets the bounding boxes of the detected faces.
+     *
+     * @param aFaces x, y, width and height of each face, back to back
+     * @param aCount number of faces
+     */
+    public void setFaces(final int[] aFaces, final int aCount) {
+
+        if (faces.length < 4 * aCount) {
+            faces = new int[4 * aCount];
+        }
+        System.arraycopy(aFaces, 0, faces, 0, 4 * aCount);
+        faceCount = aCount;
+    }
+
+    /**
+     * Clears the results of the frame filters, e.g. before the holder is reused.
+     */
+    public void clearAnnotations() {
+
+        hashed = false;
+        faceCount = -1;
+    }
+
+    /**
+     * Copies the given image into this holder.
+     *
+     * @param aImage source image
+     */
+    public void copyFrom(final Mat aImage) {
+        aImage.copyTo(image);
+    }
+
+    /**
+     * Copies this frame into another holder.
+     *
+     * @param aTarget target holder
+     */
+    public void copyTo(final CapturedFrame aTarget) {
+        image.copyTo(aTarget.image);
+        aTarget.captureTime = captureTime;
+        aTarget.wallClockTime = wallClockTime;
+        aTarget.timestamp = timestamp;
+        aTarget.frameNumber = frameNumber;
+        aTarget.keyFrame = keyFrame;
+        aTarget.perceptualHash = perceptualHash;
+        aTarget.hashed = hashed;
+        if (faceCount > 0) {
+            aTarget.setFaces(faces, faceCount);
+        }
+        aTarget.faceCount = faceCount;
+    }
+
+    /**
+     * Releases the native image memory.
+     */
+    public void release() {
+        image.release();
+    }
+}
@@ -0,0 +1,91 @@
+package nifi;
+
+import org.bytedeco.javacpp.opencv_core;
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacpp.opencv_core.Size;
+import org.bytedeco.javacpp.opencv_imgproc;
+
+/**
+ * A frame filter which only accepts frames that differ enough from the last
+ * buffered one. Frames are compared as small grayscale thumbnails by their
+ * mean absolute difference, so sensor noise averages out and the comparison
+ * costs a fraction of encoding the frame.
+ */
+public class ChangeDetector implements FrameFilter {
+
+    /** Thumbnail width, in pixels. */
+    private static final int THUMBNAIL_WIDTH = 64;
+
+    /** Thumbnail height, in pixels. */
+    private static final int THUMBNAIL_HEIGHT = 48;
+
+    /** Minimum mean absolute difference of an accepted frame, in intensity levels. */
+    private final double threshold;
+
+    /** Thumbnail size. */
+    private final Size size = new Size(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+
+    /** Thumbnail of the current frame. */
+    private final Mat thumbnail = new Mat();
+
+    /** Grayscale thumbnail of the current frame. */
+    private final Mat gray = new Mat();
+
+    /** Grayscale thumbnail of the last buffered frame. */
+    private final Mat reference = new Mat();
+
+    /** Absolute difference of the current and the last buffered thumbnails. */
+    private final Mat difference = new Mat();
+
+    /**
+     * Constructor.
+     *
+     * @param aThreshold minimum mean absolute difference of an accepted frame, from 0 to 255
+     */
+    public ChangeDetector(final double aThreshold) {
+        threshold = aThreshold;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean accept(final Mat aImage) {
+
+        opencv_imgproc.resize(aImage, thumbnail, size, 0, 0, opencv_imgproc.INTER_AREA);
+        if (thumbnail.channels() == 3) {
+            opencv_imgproc.cvtColor(thumbnail, gray, opencv_imgproc.COLOR_BGR2GRAY);
+        } else if (thumbnail.channels() == 4) {
+            opencv_imgproc.cvtColor(thumbnail, gray, opencv_imgproc.COLOR_BGRA2GRAY);
+        } else {
+            thumbnail.copyTo(gray);
+        }
+
+        if (reference.empty()) {
+            return true;
+        }
+        opencv_core.absdiff(gray, reference, difference);
+        return opencv_core.mean(difference).get(0) >= threshold;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void buffered(final CapturedFrame aFrame) {
+        gray.copyTo(reference);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release() {
+
+        thumbnail.release();
+        gray.release();
+        reference.release();
+        difference.release();
+        size.deallocate();
+    }
+}
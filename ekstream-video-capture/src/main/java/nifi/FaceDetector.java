@@ -0,0 +1,127 @@
+package nifi;
+
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacpp.opencv_core.Rect;
+import org.bytedeco.javacpp.opencv_core.RectVector;
+import org.bytedeco.javacpp.opencv_core.Size;
+import org.bytedeco.javacpp.opencv_imgproc;
+import org.bytedeco.javacpp.opencv_objdetect.CascadeClassifier;
+
+/**
+ * A frame filter which detects faces with a Haar or LBP cascade on a
+ * downscaled grayscale copy of every frame and attaches their bounding
+ * boxes, in full resolution coordinates, to the buffered frame. Frames
+ * without faces are either rejected or buffered for routing.
+ */
+public class FaceDetector implements FrameFilter {
+
+    /** Scale step between two detection passes. */
+    private static final double SCALE_FACTOR = 1.1;
+
+    /** Number of overlapping detections required to report a face. */
+    private static final int MIN_NEIGHBORS = 3;
+
+    /** Cascade classifier, only used by the capture worker owning this filter. */
+    private final CascadeClassifier classifier;
+
+    /** Maximum width of the image faces are detected on, in pixels. */
+    private final int detectionWidth;
+
+    /** Whether frames without faces are rejected. */
+    private final boolean rejectEmpty;
+
+    /** Unlimited minimum and maximum face size. */
+    private final Size anySize = new Size();
+
+    /** Downscaled copy of the current frame. */
+    private final Mat scaled = new Mat();
+
+    /** Grayscale copy of the current frame. */
+    private final Mat gray = new Mat();
+
+    /** Faces detected in the current frame, in detection coordinates. */
+    private final RectVector detected = new RectVector();
+
+    /** Bounding boxes of the faces in the current frame, as x, y, width and height each. */
+    private int[] faces = new int[0];
+
+    /** Number of faces in the current frame. */
+    private int faceCount;
+
+    /**
+     * Constructor.
+     *
+     * @param aCascadeFile path of the cascade file
+     * @param aDetectionWidth maximum width of the image faces are detected on, in pixels
+     * @param aRejectEmpty whether frames without faces are rejected
+     * @throws IllegalArgumentException if the cascade cannot be loaded
+     */
+    public FaceDetector(final String aCascadeFile, final int aDetectionWidth, final boolean aRejectEmpty) {
+
+        classifier = new CascadeClassifier(aCascadeFile);
+        if (classifier.empty()) {
+            classifier.deallocate();
+            throw new IllegalArgumentException("Cannot load the face cascade " + aCascadeFile);
+        }
+        detectionWidth = aDetectionWidth;
+        rejectEmpty = aRejectEmpty;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean accept(final Mat aImage) {
+
+        Mat image = aImage;
+        double scale = 1;
+        if (aImage.cols() > detectionWidth) {
+            scale = (double) detectionWidth / aImage.cols();
+            opencv_imgproc.resize(aImage, scaled, anySize, scale, scale, opencv_imgproc.INTER_AREA);
+            image = scaled;
+        }
+        if (image.channels() == 3) {
+            opencv_imgproc.cvtColor(image, gray, opencv_imgproc.COLOR_BGR2GRAY);
+        } else if (image.channels() == 4) {
+            opencv_imgproc.cvtColor(image, gray, opencv_imgproc.COLOR_BGRA2GRAY);
+        } else {
+            image.copyTo(gray);
+        }
+        opencv_imgproc.equalizeHist(gray, gray);
+        classifier.detectMultiScale(gray, detected, SCALE_FACTOR, MIN_NEIGHBORS, 0, anySize, anySize);
+
+        faceCount = (int) detected.size();
+        if (faces.length < 4 * faceCount) {
+            faces = new int[4 * faceCount];
+        }
+        for (int i = 0; i < faceCount; i++) {
+            Rect face = detected.get(i);
+            faces[4 * i] = (int) (face.x() / scale);
+            faces[4 * i + 1] = (int) (face.y() / scale);
+            faces[4 * i + 2] = Math.min((int) Math.ceil(face.width() / scale), aImage.cols() - faces[4 * i]);
+            faces[4 * i + 3] = Math.min((int) Math.ceil(face.height() / scale), aImage.rows() - faces[4 * i + 1]);
+        }
+        return faceCount > 0 || !rejectEmpty;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void buffered(final CapturedFrame aFrame) {
+        aFrame.setFaces(faces, faceCount);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release() {
+
+        classifier.deallocate();
+        detected.deallocate();
+        anySize.deallocate();
+        scaled.release();
+        gray.release();
+    }
+}
@@ -0,0 +1,188 @@
+package nifi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.logging.ComponentLog;
+
+/**
+ * A background writer which saves already encoded frames into date-partitioned
+ * subfolders of an archive directory, so that capturing never waits for the disk.
+ */
+public class FrameArchiver extends Thread {
+
+    /** Maximum number of frames written per batch. */
+    private static final int BATCH_SIZE = 32;
+
+    /** Time to wait for new frames before checking for shutdown, in ms. */
+    private static final long POLL_TIMEOUT = 100;
+
+    /** Time to wait for the pending frames to be written on shutdown, in ms. */
+    private static final long SHUTDOWN_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    /** Layout of the date-partitioned subfolders. */
+    private static final DateTimeFormatter PARTITION_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy/MM/dd").withZone(ZoneId.systemDefault());
+
+    /** Archive directory. */
+    private final Path directory;
+
+    /** Frames waiting to be written. */
+    private final BlockingQueue<Entry> queue;
+
+    /** Pipeline metrics. */
+    private final CaptureMetrics metrics;
+
+    /** Logger. */
+    private final ComponentLog logger;
+
+    /** Sequence number of the next file, making names unique within a millisecond. */
+    private long sequence;
+
+    /** Whether new frames are accepted. */
+    private volatile boolean running = true;
+
+    /**
+     * Constructor.
+     *
+     * @param aName thread name
+     * @param aDirectory archive directory
+     * @param aQueueSize maximum number of frames waiting to be written
+     * @param aMetrics pipeline metrics
+     * @param aLogger logger
+     */
+    public FrameArchiver(final String aName, final Path aDirectory, final int aQueueSize,
+            final CaptureMetrics aMetrics, final ComponentLog aLogger) {
+
+        super(aName);
+        setDaemon(true);
+        directory = aDirectory;
+        queue = new ArrayBlockingQueue<>(aQueueSize);
+        metrics = aMetrics;
+        logger = aLogger;
+    }
+
+    /**
+     * Queues an encoded frame for archiving. The content is not copied, so
+     * it must not be modified afterwards.
+     *
+     * @param aContent buffer holding the encoded frame
+     * @param aLength length of the encoded frame, in bytes
+     * @param aExtension file name extension
+     * @param aTimestamp capture time, in ms since the epoch
+     * @return false if the frame was rejected because the queue is full
+     */
+    public boolean submit(final byte[] aContent, final int aLength, final String aExtension,
+            final long aTimestamp) {
+        return running && queue.offer(new Entry(aContent, aLength, aExtension, aTimestamp));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+
+        final List<Entry> batch = new ArrayList<>(BATCH_SIZE);
+        try {
+            while (running || !queue.isEmpty()) {
+                Entry first = queue.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, BATCH_SIZE - 1);
+                for (Entry entry : batch) {
+                    write(entry);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            logger.error("Something went wrong with the threads!", e);
+        }
+    }
+
+    /**
+     * Writes a frame into a new file.
+     *
+     * @param aEntry archived frame
+     */
+    private void write(final Entry aEntry) {
+
+        final long start = System.nanoTime();
+        try {
+            Path folder = directory.resolve(PARTITION_FORMAT.format(Instant.ofEpochMilli(aEntry.timestamp)));
+            Files.createDirectories(folder);
+            while (true) {
+                Path file = folder.resolve(aEntry.timestamp + "-" + sequence++ + "-captured." + aEntry.extension);
+                try (OutputStream out = Files.newOutputStream(file, StandardOpenOption.CREATE_NEW)) {
+                    out.write(aEntry.content, 0, aEntry.length);
+                    metrics.record(CaptureMetrics.Stage.SAVE, start);
+                    return;
+                } catch (FileAlreadyExistsException e) {
+                    continue;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Something went wrong with saving the file!", e);
+        }
+    }
+
+    /**
+     * Stops accepting frames and waits until the queued ones have been written.
+     */
+    public void shutdown() {
+
+        running = false;
+        try {
+            join(SHUTDOWN_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * An encoded frame waiting to be archived.
+     */
+    private static final class Entry {
+
+        /** Buffer holding the encoded frame. */
+        private final byte[] content;
+
+        /** Length of the encoded frame, in bytes. */
+        private final int length;
+
+        /** File name extension. */
+        private final String extension;
+
+        /** Capture time, in ms since the epoch. */
+        private final long timestamp;
+
+        /**
+         * Constructor.
+         *
+         * @param aContent buffer holding the encoded frame
+         * @param aLength length of the encoded frame, in bytes
+         * @param aExtension file name extension
+         * @param aTimestamp capture time, in ms since the epoch
+         */
+        private Entry(final byte[] aContent, final int aLength, final String aExtension, final long aTimestamp) {
+            content = aContent;
+            length = aLength;
+            extension = aExtension;
+            timestamp = aTimestamp;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package nifi;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Unpacks the frame bundles written by {@link FrameBundleWriter}, e.g. in
+ * downstream processors reading the flow file content into a byte array.
+ * The whole index is checked against the content when the reader is created.
+ */
+public class FrameBundleReader {
+
+    /** Bundle content. */
+    private final byte[] content;
+
+    /** Bundle index. */
+    private final ByteBuffer index;
+
+    /** Number of frames. */
+    private final int count;
+
+    /**
+     * Constructor.
+     *
+     * @param aContent bundle content
+     * @throws IOException if the content is not a valid bundle
+     */
+    public FrameBundleReader(final byte[] aContent) throws IOException {
+
+        if (!isBundle(aContent)) {
+            throw new IOException("Not a frame bundle");
+        }
+        ByteBuffer footer = ByteBuffer.wrap(aContent, aContent.length - FrameBundleWriter.FOOTER_SIZE,
+                FrameBundleWriter.FOOTER_SIZE);
+        count = footer.getInt();
+        int version = footer.getInt();
+        if (version != FrameBundleWriter.VERSION) {
+            throw new IOException("Unsupported frame bundle version: " + version);
+        }
+        long indexStart = aContent.length - FrameBundleWriter.FOOTER_SIZE
+                - (long) count * FrameBundleWriter.ENTRY_SIZE;
+        if (count < 0 || indexStart < 0) {
+            throw new IOException("Corrupted frame bundle index");
+        }
+        content = aContent;
+        index = ByteBuffer.wrap(aContent, (int) indexStart, count * FrameBundleWriter.ENTRY_SIZE).slice();
+        for (int i = 0; i < count; i++) {
+            long offset = entry(i, 0);
+            long length = entry(i, 1);
+            if (offset < 0 || length < 0 || offset > indexStart - length) {
+                throw new IOException("Corrupted frame bundle index: frame " + i + " at " + offset
+                        + " of " + length + " bytes");
+            }
+        }
+    }
+
+    /**
+     * Checks whether the given content ends with a bundle footer.
+     *
+     * @param aContent flow file content
+     * @return true if the content is a frame bundle
+     */
+    public static boolean isBundle(final byte[] aContent) {
+
+        return aContent.length >= FrameBundleWriter.FOOTER_SIZE
+                && ByteBuffer.wrap(aContent).getInt(aContent.length - Integer.BYTES) == FrameBundleWriter.MAGIC;
+    }
+
+    /**
+     * Returns the number of frames in the bundle.
+     *
+     * @return frame count
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * Returns the timestamp of a frame.
+     *
+     * @param aIndex frame index
+     * @return timestamp, in microseconds
+     */
+    public long getTimestamp(final int aIndex) {
+        return entry(aIndex, 2);
+    }
+
+    /**
+     * Returns the frame number of a frame.
+     *
+     * @param aIndex frame index
+     * @return frame number
+     */
+    public long getFrameNumber(final int aIndex) {
+        return entry(aIndex, 3);
+    }
+
+    /**
+     * Returns the encoded bytes of a frame.
+     *
+     * @param aIndex frame index
+     * @return encoded frame
+     */
+    public byte[] getFrame(final int aIndex) {
+
+        int offset = (int) entry(aIndex, 0);
+        return Arrays.copyOfRange(content, offset, offset + (int) entry(aIndex, 1));
+    }
+
+    /**
+     * Opens the encoded bytes of a frame without copying them.
+     *
+     * @param aIndex frame index
+     * @return input stream
+     */
+    public InputStream openFrame(final int aIndex) {
+        return new ByteArrayInputStream(content, (int) entry(aIndex, 0), (int) entry(aIndex, 1));
+    }
+
+    /**
+     * Reads a field of an index entry.
+     *
+     * @param aIndex frame index
+     * @param aField field number within the entry
+     * @return field value
+     */
+    private long entry(final int aIndex, final int aField) {
+
+        if (aIndex < 0 || aIndex >= count) {
+            throw new IndexOutOfBoundsException("Frame " + aIndex + " of " + count);
+        }
+        return index.getLong(aIndex * FrameBundleWriter.ENTRY_SIZE + aField * Long.BYTES);
+    }
+}
@@ -0,0 +1,117 @@
+package nifi;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Packs consecutive encoded frames into the content of a single flow file.
+ * The frames are written back to back, followed by an index and a footer:
+ * <pre>
+ * frame 0 | frame 1 | ... | index entry 0 | index entry 1 | ... | count | version | magic
+ * </pre>
+ * Each index entry holds the offset and length of the frame in bytes, its
+ * timestamp in microseconds and its frame number, as big-endian longs. Putting
+ * the index last lets frames be streamed into the content without buffering.
+ * Bundles are unpacked with {@link FrameBundleReader}.
+ */
+public class FrameBundleWriter {
+
+    /** MIME type of frame bundles. */
+    public static final String MIME_TYPE = "application/x-ekstream-frame-bundle";
+
+    /** Magic number closing every bundle, "EKFB". */
+    static final int MAGIC = 0x454B4642;
+
+    /** Format version. */
+    static final int VERSION = 1;
+
+    /** Size of an index entry, in bytes. */
+    static final int ENTRY_SIZE = 4 * Long.BYTES;
+
+    /** Size of the footer, in bytes. */
+    static final int FOOTER_SIZE = 3 * Integer.BYTES;
+
+    /** Bundle content. */
+    private final DataOutputStream out;
+
+    /** Frame offsets. */
+    private final long[] offsets;
+
+    /** Frame lengths. */
+    private final long[] lengths;
+
+    /** Frame timestamps. */
+    private final long[] timestamps;
+
+    /** Frame numbers. */
+    private final long[] frameNumbers;
+
+    /** Number of frames written. */
+    private int count;
+
+    /** Offset of the frame being written. */
+    private long frameStart;
+
+    /**
+     * Constructor.
+     *
+     * @param aStream bundle content
+     * @param aCapacity maximum number of frames in the bundle
+     */
+    public FrameBundleWriter(final OutputStream aStream, final int aCapacity) {
+
+        out = new DataOutputStream(aStream);
+        offsets = new long[aCapacity];
+        lengths = new long[aCapacity];
+        timestamps = new long[aCapacity];
+        frameNumbers = new long[aCapacity];
+    }
+
+    /**
+     * Returns the stream the next frame is written into.
+     *
+     * @return output stream
+     */
+    public OutputStream getStream() {
+        return out;
+    }
+
+    /**
+     * Records the frame written since the previous one.
+     *
+     * @param aTimestamp frame timestamp, in microseconds
+     * @param aFrameNumber frame number
+     */
+    public void endFrame(final long aTimestamp, final long aFrameNumber) {
+
+        if (count == offsets.length) {
+            throw new IllegalStateException("The bundle is full: " + count + " frames");
+        }
+        offsets[count] = frameStart;
+        lengths[count] = out.size() - frameStart;
+        timestamps[count] = aTimestamp;
+        frameNumbers[count] = aFrameNumber;
+        frameStart = out.size();
+        count++;
+    }
+
+    /**
+     * Writes the index and the footer. The underlying stream is flushed but not closed.
+     *
+     * @throws IOException if the stream cannot be written
+     */
+    public void finish() throws IOException {
+
+        for (int i = 0; i < count; i++) {
+            out.writeLong(offsets[i]);
+            out.writeLong(lengths[i]);
+            out.writeLong(timestamps[i]);
+            out.writeLong(frameNumbers[i]);
+        }
+        out.writeInt(count);
+        out.writeInt(VERSION);
+        out.writeInt(MAGIC);
+        out.flush();
+    }
+}
@@ -0,0 +1,271 @@
+package nifi;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.logging.ComponentLog;
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+
+/**
+ * A background task which continuously grabs frames from a running grabber
+ * and buffers the sampled ones, transformed and accepted by its filters, for
+ * the processor, occupying its thread until it is shut down or a recorded
+ * video stream ends. Failures are logged and skipped; live streams that fail
+ * or end are reopened, waiting longer after each consecutive failure.
+ */
+public class FrameCaptureWorker implements Runnable {
+
+    /** Time to wait after the first of consecutive failures, in ms. */
+    private static final long INITIAL_BACKOFF = 100;
+
+    /** Longest time to wait after consecutive failures, in ms. */
+    private static final long MAX_BACKOFF = TimeUnit.SECONDS.toMillis(10);
+
+    /** JavaCV frame grabber. */
+    private final FrameGrabber grabber;
+
+    /** Whether the source is recorded, in which case it is not reopened when it ends. */
+    private final boolean recorded;
+
+    /** Sampling mode the grabber is configured for. */
+    private final SamplingMode mode;
+
+    /** Schedules the sampled frames. */
+    private final FramePacer pacer;
+
+    /** Transform of the sampled frames, null to keep them as grabbed. */
+    private final FrameTransform transform;
+
+    /** Filters of the sampled frames, applied in order. */
+    private final List<FrameFilter> filters;
+
+    /** Buffer of sampled frames. */
+    private final FrameRingBuffer buffer;
+
+    /** Pipeline metrics. */
+    private final CaptureMetrics metrics;
+
+    /** Logger. */
+    private final ComponentLog logger;
+
+    /** Converter for Frames and Mats. */
+    private final OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat();
+
+    /** Whether the task should keep grabbing. */
+    private volatile boolean running = true;
+
+    /** Released when the task has been asked to stop. */
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    /** Released when the task has finished. */
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    /**
+     * Constructor.
+     *
+     * @param aGrabber started frame grabber
+     * @param aRecorded whether the source is recorded rather than live
+     * @param aMode sampling mode the grabber is configured for
+     * @param aPacer frame pacer
+     * @param aTransform frame transform, null to keep frames as grabbed; owned by this worker from now on
+     * @param aFilters frame filters, owned by this worker from now on
+     * @param aBuffer frame buffer
+     * @param aMetrics pipeline metrics
+     * @param aLogger logger
+     */
+    public FrameCaptureWorker(final FrameGrabber aGrabber, final boolean aRecorded, final SamplingMode aMode,
+            final FramePacer aPacer, final FrameTransform aTransform, final List<FrameFilter> aFilters,
+            final FrameRingBuffer aBuffer, final CaptureMetrics aMetrics, final ComponentLog aLogger) {
+
+        grabber = aGrabber;
+        recorded = aRecorded;
+        mode = aMode;
+        pacer = aPacer;
+        transform = aTransform;
+        filters = aFilters;
+        buffer = aBuffer;
+        metrics = aMetrics;
+        logger = aLogger;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void run() {
+
+        int failures = 0;
+        try {
+            while (running) {
+                try {
+                    if (captureFrame()) {
+                        failures = 0;
+                        continue;
+                    }
+                    if (recorded) {
+                        logger.info("End of the video stream reached.");
+                        break;
+                    }
+                    logger.warn("The video stream was interrupted, reopening it.");
+                } catch (FrameGrabber.Exception | RuntimeException e) {
+                    if (!running) {
+                        break;
+                    }
+                    metrics.framesFailed(1);
+                    logger.error("Something went wrong with the video capture!", e);
+                }
+                recover(++failures);
+            }
+        } finally {
+            if (transform != null) {
+                transform.release();
+            }
+            for (FrameFilter filter : filters) {
+                filter.release();
+            }
+            finished.countDown();
+        }
+    }
+
+    /**
+     * Grabs the next frame and buffers it if it is sampled and accepted.
+     *
+     * @return false if the video stream has ended
+     * @throws FrameGrabber.Exception if the frame cannot be grabbed
+     */
+    private boolean captureFrame() throws FrameGrabber.Exception {
+
+        long start = System.nanoTime();
+        // some modes have to know whether the frame is due before it is
+        // grabbed, so that frames that are not due are never converted;
+        // recorded sources are then paced by the previous timestamp
+        final boolean pacedBeforeGrab = mode.isPacedBeforeGrab();
+        final boolean due = !pacedBeforeGrab || pacer.acquire(grabber.getTimestamp());
+        Frame frame = mode.grab(grabber, due);
+        metrics.record(CaptureMetrics.Stage.GRAB, start);
+        if (frame == null) {
+            return false;
+        }
+        if (frame.image == null) {
+            return true;
+        }
+        metrics.frameGrabbed();
+        if (pacedBeforeGrab ? !due : !pacer.acquire(grabber.getTimestamp())) {
+            return true;
+        }
+        Mat image = converter.convert(frame);
+        if (transform != null) {
+            start = System.nanoTime();
+            image = transform.apply(image);
+            metrics.record(CaptureMetrics.Stage.TRANSFORM, start);
+        }
+        if (!accept(image)) {
+            metrics.framesSkipped(1);
+            return true;
+        }
+        final long dropped = buffer.getDroppedCount();
+        CapturedFrame slot = buffer.claim();
+        // only the producer drops frames, so the metrics never lag behind the buffer
+        metrics.framesDropped(buffer.getDroppedCount() - dropped);
+        if (slot != null) {
+            start = System.nanoTime();
+            slot.setCaptureTime(start);
+            slot.setWallClockTime(System.currentTimeMillis());
+            slot.setTimestamp(grabber.getTimestamp());
+            slot.setFrameNumber(grabber.getFrameNumber());
+            slot.setKeyFrame(frame.keyFrame);
+            slot.clearAnnotations();
+            slot.copyFrom(image);
+            for (FrameFilter filter : filters) {
+                filter.buffered(slot);
+            }
+            buffer.publish();
+            metrics.record(CaptureMetrics.Stage.BUFFER, start);
+        }
+        return true;
+    }
+
+    /**
+     * Waits after a failure, longer after each consecutive one, and reopens
+     * live streams.
+     *
+     * @param aFailures number of consecutive failures
+     */
+    private void recover(final int aFailures) {
+
+        final long backoff = Math.min(MAX_BACKOFF, INITIAL_BACKOFF << Math.min(aFailures - 1, 16));
+        try {
+            if (stopped.await(backoff, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+            return;
+        }
+        if (recorded) {
+            return;
+        }
+        try {
+            grabber.stop();
+            grabber.start();
+        } catch (FrameGrabber.Exception | RuntimeException e) {
+            logger.error("Could not reopen the video stream!", e);
+        }
+    }
+
+    /**
+     * Checks whether all filters accept a sampled frame.
+     *
+     * @param aImage sampled frame
+     * @return true if the frame should be buffered
+     */
+    private boolean accept(final Mat aImage) {
+
+        if (filters.isEmpty()) {
+            return true;
+        }
+        final long start = System.nanoTime();
+        try {
+            for (FrameFilter filter : filters) {
+                if (!filter.accept(aImage)) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            metrics.record(CaptureMetrics.Stage.FILTER, start);
+        }
+    }
+
+    /**
+     * Asks the task to stop grabbing, without waiting for it to finish.
+     */
+    public void shutdown() {
+
+        running = false;
+        buffer.close();
+        stopped.countDown();
+    }
+
+    /**
+     * Waits for the task to finish after {@link #shutdown()}, so the grabber
+     * can be safely stopped afterwards.
+     *
+     * @param aDeadline time to give up waiting, as given by {@link System#nanoTime()}
+     * @return true if the task has finished
+     */
+    public boolean awaitTermination(final long aDeadline) {
+
+        try {
+            return finished.await(aDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return finished.getCount() == 0;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package nifi;
+
+import org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * A stage of the capture worker which decides whether a sampled frame is
+ * worth transferring before it is buffered and encoded. Filters are used by
+ * a single capture worker only, so they may keep state between frames.
+ */
+public interface FrameFilter {
+
+    /**
+     * Checks whether a sampled frame should be transferred.
+     *
+     * @param aImage sampled frame, only valid during the call
+     * @return true if the frame should be transferred
+     */
+    boolean accept(Mat aImage);
+
+    /**
+     * Called with the buffered copy of the last frame accepted by all filters,
+     * so that filters can take it as their new reference and annotate it.
+     * The frame may still be dropped from a full frame buffer afterwards, so
+     * the reference is the last buffered frame, not the last transferred one.
+     *
+     * @param aFrame buffered frame
+     */
+    void buffered(CapturedFrame aFrame);
+
+    /**
+     * Releases the native memory held by this filter.
+     */
+    void release();
+}
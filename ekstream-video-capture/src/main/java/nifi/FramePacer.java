@@ -0,0 +1,72 @@
+package nifi;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Computes when the next video frame is due, so that callers can return
+ * immediately instead of sleeping until then. Live sources are paced by the
+ * wall clock; recorded ones by the timestamps of their frames, since they are
+ * decoded much faster than they were recorded.
+ */
+public class FramePacer {
+
+    /** Interval between two frames, in ns. */
+    private final long interval;
+
+    /** Whether frames are paced by their timestamps instead of the wall clock. */
+    private final boolean mediaTime;
+
+    /** Whether a frame has been due yet. */
+    private boolean started;
+
+    /** Time at which the next frame is due, in ns. */
+    private long nextDue;
+
+    /**
+     * Constructor of a pacer for live sources.
+     *
+     * @param aIntervalMillis time interval between two frames, in ms
+     */
+    public FramePacer(final long aIntervalMillis) {
+        this(aIntervalMillis, false);
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param aIntervalMillis time interval between two frames, in ms
+     * @param aMediaTime whether frames are paced by their timestamps instead of the wall clock
+     */
+    public FramePacer(final long aIntervalMillis, final boolean aMediaTime) {
+
+        interval = TimeUnit.MILLISECONDS.toNanos(Math.max(0, aIntervalMillis));
+        mediaTime = aMediaTime;
+    }
+
+    /**
+     * Checks whether a frame is due and, if so, schedules the next one.
+     * The schedule advances by whole intervals, so occasional late triggers
+     * do not make the frame rate drift. If the caller fell behind by more
+     * than one interval, the schedule restarts from the current time, as it
+     * does when the timestamps of a recorded source go back.
+     *
+     * @param aTimestamp timestamp of the frame, in µs, ignored unless paced by media time
+     * @return true if a frame should be captured now
+     */
+    public synchronized boolean acquire(final long aTimestamp) {
+
+        long now = mediaTime ? TimeUnit.MICROSECONDS.toNanos(aTimestamp) : System.nanoTime();
+        if (!started || now - nextDue < -interval) {
+            started = true;
+            nextDue = now;
+        }
+        if (now - nextDue < 0) {
+            return false;
+        }
+        nextDue += interval;
+        if (now - nextDue >= 0) {
+            nextDue = now + interval;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,234 @@
+package nifi;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded single-producer/multi-consumer ring buffer of captured frames.
+ * Slots are allocated once and reused, so a steady stream of equally sized
+ * frames is buffered without allocations. A consumer takes ownership of a
+ * slot before copying it out, and the producer never writes into a slot that
+ * is being read, so a frame is never resized or overwritten under a reader.
+ */
+public class FrameRingBuffer {
+
+    /** Time the producer parks while the buffer is full, in ns. */
+    private static final long BLOCK_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Sequence of a slot being written. */
+    private static final long WRITING = -1;
+
+    /** State of a slot that holds no unread frame. */
+    private static final int FREE = 0;
+
+    /** State of a slot being written by the producer. */
+    private static final int WRITE = 1;
+
+    /** State of a slot holding a published frame. */
+    private static final int READY = 2;
+
+    /** State of a slot being read by a consumer. */
+    private static final int READ = 3;
+
+    /** Buffer slots. */
+    private final Slot[] slots;
+
+    /** Overflow policy. */
+    private final OverflowPolicy policy;
+
+    /** Number of frames ever published, written by the producer only. */
+    private volatile long head;
+
+    /** Number of frames ever consumed or dropped from the buffer. */
+    private final AtomicLong tail = new AtomicLong();
+
+    /** Number of dropped frames. */
+    private final AtomicLong dropped = new AtomicLong();
+
+    /** Whether a blocked producer should give up. */
+    private volatile boolean closed;
+
+    /**
+     * Constructor.
+     *
+     * @param aCapacity maximum number of buffered frames
+     * @param aPolicy overflow policy
+     */
+    public FrameRingBuffer(final int aCapacity, final OverflowPolicy aPolicy) {
+
+        if (aCapacity < 1) {
+            throw new IllegalArgumentException("Buffer capacity must be positive: " + aCapacity);
+        }
+        slots = new Slot[aCapacity];
+        for (int i = 0; i < aCapacity; i++) {
+            slots[i] = new Slot();
+        }
+        policy = aPolicy;
+    }
+
+    /**
+     * Claims the slot for the next frame, applying the overflow policy if the
+     * buffer is full. The producer fills the returned holder and then calls
+     * {@link #publish()}. If a consumer is still copying the frame that
+     * previously occupied the slot, waits for it to finish. If the previous
+     * claim was never published, its slot is returned again. Must only be
+     * called by the producer thread.
+     *
+     * @return holder to fill, or null if the frame has to be dropped
+     */
+    public CapturedFrame claim() {
+
+        final long h = head;
+        long t;
+        while (h - (t = tail.get()) >= slots.length) {
+            if (closed) {
+                return null;
+            }
+            switch (policy) {
+            case DROP_NEWEST:
+                dropped.incrementAndGet();
+                return null;
+            case DROP_OLDEST:
+                if (tail.compareAndSet(t, t + 1)) {
+                    dropped.incrementAndGet();
+                }
+                break;
+            default:
+                LockSupport.parkNanos(BLOCK_PARK_NANOS);
+                break;
+            }
+        }
+
+        // a slot still being written was claimed by a fill that failed before publishing
+        final Slot slot = slots[(int) (h % slots.length)];
+        while (slot.state.get() != WRITE && !slot.state.compareAndSet(FREE, WRITE)
+                && !slot.state.compareAndSet(READY, WRITE)) {
+            if (closed) {
+                return null;
+            }
+            Thread.yield();
+        }
+        slot.sequence = WRITING;
+        return slot.frame;
+    }
+
+    /**
+     * Makes the frame filled after the last {@link #claim()} available to consumers.
+     */
+    public void publish() {
+
+        final long h = head;
+        final Slot slot = slots[(int) (h % slots.length)];
+        slot.sequence = h;
+        slot.state.set(READY);
+        head = h + 1;
+    }
+
+    /**
+     * Takes the oldest buffered frame.
+     *
+     * @param aTarget holder the frame is copied into
+     * @return true if a frame has been taken, false if the buffer is empty
+     */
+    public boolean poll(final CapturedFrame aTarget) {
+
+        while (true) {
+            final long t = tail.get();
+            if (t >= head) {
+                return false;
+            }
+            final Slot slot = slots[(int) (t % slots.length)];
+            if (slot.sequence != t || !slot.state.compareAndSet(READY, READ)) {
+                continue;
+            }
+            if (slot.sequence != t || !tail.compareAndSet(t, t + 1)) {
+                // the frame has been dropped or taken by another consumer
+                slot.state.set(READY);
+                continue;
+            }
+            try {
+                slot.frame.copyTo(aTarget);
+            } finally {
+                slot.state.set(FREE);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns the number of buffered frames.
+     *
+     * @return queue depth
+     */
+    public int size() {
+        return (int) Math.max(0, Math.min(slots.length, head - tail.get()));
+    }
+
+    /**
+     * Checks whether the oldest buffered frame was grabbed before the given
+     * time. The result is only a hint, as the frame may be taken or dropped
+     * concurrently.
+     *
+     * @param aTime time, in ns of {@link System#nanoTime()}
+     * @return true if the buffer holds a frame grabbed before the time
+     */
+    public boolean isOldestCapturedBefore(final long aTime) {
+
+        while (true) {
+            final long t = tail.get();
+            if (t >= head) {
+                return false;
+            }
+            final Slot slot = slots[(int) (t % slots.length)];
+            if (slot.sequence == t) {
+                final long captureTime = slot.frame.getCaptureTime();
+                if (slot.sequence == t) {
+                    return captureTime - aTime < 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of frames dropped because the buffer was full.
+     *
+     * @return dropped frame count
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Wakes up a blocked producer and makes further claims fail.
+     */
+    public void close() {
+        closed = true;
+    }
+
+    /**
+     * Releases the native memory of all slots. The producer must have stopped.
+     */
+    public void release() {
+
+        for (Slot slot : slots) {
+            slot.frame.release();
+        }
+    }
+
+    /**
+     * A buffer slot.
+     */
+    private static final class Slot {
+
+        /** Buffered frame. */
+        private final CapturedFrame frame = new CapturedFrame();
+
+        /** Sequence number of the buffered frame. */
+        private volatile long sequence = WRITING;
+
+        /** Whether the slot is free, being written, ready or being read. */
+        private final AtomicInteger state = new AtomicInteger(FREE);
+    }
+}
@@ -0,0 +1,123 @@
+package nifi;
+
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacpp.opencv_core.Rect;
+import org.bytedeco.javacpp.opencv_core.Size;
+import org.bytedeco.javacpp.opencv_imgproc;
+
+/**
+ * A chain of native transforms applied to every sampled frame before it is
+ * filtered, buffered and encoded: a region of interest crop, a grayscale
+ * conversion and a resize, in this order so that every step works on as few
+ * pixels as possible. Transforms are used by a single capture worker only,
+ * so the intermediate images are reused between frames.
+ */
+public class FrameTransform {
+
+    /** Region of interest as x, y, width and height, null to keep the whole frame. */
+    private final int[] region;
+
+    /** Output width, in pixels, 0 to derive it from the height or keep it. */
+    private final int width;
+
+    /** Output height, in pixels, 0 to derive it from the width or keep it. */
+    private final int height;
+
+    /** OpenCV interpolation of the resize. */
+    private final int interpolation;
+
+    /** Whether frames are converted to grayscale. */
+    private final boolean gray;
+
+    /** Header of the region of interest of the current frame. */
+    private Mat cropped;
+
+    /** Grayscale copy of the current frame. */
+    private final Mat converted = new Mat();
+
+    /** Resized copy of the current frame. */
+    private final Mat resized = new Mat();
+
+    /**
+     * Constructor.
+     *
+     * @param aRegion region of interest as x, y, width and height, null to keep the whole frame
+     * @param aWidth output width, in pixels, 0 to derive it from the height or keep it
+     * @param aHeight output height, in pixels, 0 to derive it from the width or keep it
+     * @param aInterpolation OpenCV interpolation of the resize, e.g. {@link opencv_imgproc#INTER_AREA}
+     * @param aGray whether frames are converted to grayscale
+     */
+    public FrameTransform(final int[] aRegion, final int aWidth, final int aHeight,
+            final int aInterpolation, final boolean aGray) {
+
+        region = aRegion;
+        width = aWidth;
+        height = aHeight;
+        interpolation = aInterpolation;
+        gray = aGray;
+    }
+
+    /**
+     * Checks whether this transform leaves frames unchanged.
+     *
+     * @return true if no transform is configured
+     */
+    public boolean isIdentity() {
+        return region == null && width == 0 && height == 0 && !gray;
+    }
+
+    /**
+     * Transforms a frame.
+     *
+     * @param aImage frame
+     * @return transformed frame, valid until the next call
+     */
+    public Mat apply(final Mat aImage) {
+
+        Mat image = aImage;
+        if (region != null) {
+            int x = Math.min(region[0], image.cols() - 1);
+            int y = Math.min(region[1], image.rows() - 1);
+            Rect roi = new Rect(x, y, Math.min(region[2], image.cols() - x), Math.min(region[3], image.rows() - y));
+            if (cropped != null) {
+                cropped.deallocate();
+            }
+            cropped = new Mat(image, roi);
+            roi.deallocate();
+            image = cropped;
+        }
+
+        if (gray && image.channels() == 3) {
+            opencv_imgproc.cvtColor(image, converted, opencv_imgproc.COLOR_BGR2GRAY);
+            image = converted;
+        } else if (gray && image.channels() == 4) {
+            opencv_imgproc.cvtColor(image, converted, opencv_imgproc.COLOR_BGRA2GRAY);
+            image = converted;
+        }
+
+        if (width > 0 || height > 0) {
+            int targetWidth = width > 0 ? width : (int) Math.round((double) image.cols() * height / image.rows());
+            int targetHeight = height > 0 ? height : (int) Math.round((double) image.rows() * width / image.cols());
+            if (targetWidth != image.cols() || targetHeight != image.rows()) {
+                Size size = new Size(Math.max(1, targetWidth), Math.max(1, targetHeight));
+                opencv_imgproc.resize(image, resized, size, 0, 0, interpolation);
+                size.deallocate();
+                image = resized;
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Releases the intermediate images.
+     */
+    public void release() {
+
+        if (cropped != null) {
+            cropped.deallocate();
+            cropped = null;
+        }
+        converted.release();
+        resized.release();
+    }
+}
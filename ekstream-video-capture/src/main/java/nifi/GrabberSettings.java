@@ -0,0 +1,76 @@
+package nifi;
+
+import org.bytedeco.javacpp.avutil;
+import org.bytedeco.javacv.FrameGrabber;
+
+/**
+ * Capture settings applied to a frame grabber before it is started, so that
+ * sources deliver frames at the resolution, rate and format actually needed
+ * instead of the driver defaults. Settings left at 0 or null keep the
+ * grabber defaults.
+ */
+public class GrabberSettings {
+
+    /** Image width, in pixels, 0 for the grabber default. */
+    private final int width;
+
+    /** Image height, in pixels, 0 for the grabber default. */
+    private final int height;
+
+    /** Frame rate, 0 for the grabber default. */
+    private final double frameRate;
+
+    /** FFmpeg pixel format name, e.g. "bgr24", null for the grabber default. */
+    private final String pixelFormat;
+
+    /** Image mode, null for the grabber default. */
+    private final FrameGrabber.ImageMode imageMode;
+
+    /**
+     * Constructor.
+     *
+     * @param aWidth image width, in pixels, 0 for the grabber default
+     * @param aHeight image height, in pixels, 0 for the grabber default
+     * @param aFrameRate frame rate, 0 for the grabber default
+     * @param aPixelFormat FFmpeg pixel format name, null for the grabber default
+     * @param aImageMode image mode, null for the grabber default
+     */
+    public GrabberSettings(final int aWidth, final int aHeight, final double aFrameRate,
+            final String aPixelFormat, final FrameGrabber.ImageMode aImageMode) {
+
+        width = aWidth;
+        height = aHeight;
+        frameRate = aFrameRate;
+        pixelFormat = aPixelFormat;
+        imageMode = aImageMode;
+    }
+
+    /**
+     * Applies these settings to a grabber which has not been started yet.
+     *
+     * @param aGrabber frame grabber
+     * @throws FrameGrabber.Exception if the pixel format is unknown
+     */
+    public void apply(final FrameGrabber aGrabber) throws FrameGrabber.Exception {
+
+        if (width > 0) {
+            aGrabber.setImageWidth(width);
+        }
+        if (height > 0) {
+            aGrabber.setImageHeight(height);
+        }
+        if (frameRate > 0) {
+            aGrabber.setFrameRate(frameRate);
+        }
+        if (pixelFormat != null) {
+            int format = avutil.av_get_pix_fmt(pixelFormat);
+            if (format == avutil.AV_PIX_FMT_NONE) {
+                throw new FrameGrabber.Exception("Unknown pixel format: " + pixelFormat);
+            }
+            aGrabber.setPixelFormat(format);
+        }
+        if (imageMode != null) {
+            aGrabber.setImageMode(imageMode);
+        }
+    }
+}
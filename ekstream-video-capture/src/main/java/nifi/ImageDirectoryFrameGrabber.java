@@ -0,0 +1,141 @@
+package nifi;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.bytedeco.javacpp.opencv_imgcodecs;
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+
+/**
+ * A frame grabber which replays the images of a directory in file name order,
+ * e.g. to feed recorded footage into the capture pipeline. Images are
+ * timestamped as if they had been recorded at the frame rate, one per second
+ * by default.
+ */
+public class ImageDirectoryFrameGrabber extends FrameGrabber {
+
+    /** Default frame rate, in frames per second. */
+    public static final double DEFAULT_FRAME_RATE = 1;
+
+    /** Extensions of the replayed image files. */
+    private static final Set<String> EXTENSIONS = new HashSet<>(
+            Arrays.asList("png", "jpg", "jpeg", "bmp", "tif", "tiff", "webp", "pgm", "ppm"));
+
+    /** Image directory. */
+    private final File directory;
+
+    /** Converter for Frames and Mats. */
+    private final OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat();
+
+    /** Image files, sorted by name. */
+    private File[] files;
+
+    /** Image of the last grabbed frame. */
+    private Mat image;
+
+    /**
+     * Constructor.
+     *
+     * @param aDirectory image directory
+     */
+    public ImageDirectoryFrameGrabber(final File aDirectory) {
+
+        directory = aDirectory;
+        frameRate = DEFAULT_FRAME_RATE;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start() throws Exception {
+
+        files = directory.listFiles(new FileFilter() {
+
+            @Override
+            public boolean accept(final File aFile) {
+
+                String name = aFile.getName().toLowerCase();
+                int dot = name.lastIndexOf('.');
+                return aFile.isFile() && dot >= 0 && EXTENSIONS.contains(name.substring(dot + 1));
+            }
+        });
+        if (files == null) {
+            throw new Exception("Could not list the images in " + directory);
+        }
+        Arrays.sort(files);
+        frameNumber = 0;
+        timestamp = 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() throws Exception {
+        release();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void trigger() throws Exception {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Frame grab() throws Exception {
+
+        if (files == null) {
+            throw new Exception("The grabber has not been started");
+        }
+        while (frameNumber < files.length) {
+            File file = files[frameNumber];
+            Mat next = opencv_imgcodecs.imread(file.getPath(), imageMode == ImageMode.GRAY
+                    ? opencv_imgcodecs.IMREAD_GRAYSCALE : opencv_imgcodecs.IMREAD_COLOR);
+            // timestamps have to increase for recorded sources to be paced by them
+            timestamp = Math.round(frameNumber * 1000000L / (frameRate > 0 ? frameRate : DEFAULT_FRAME_RATE));
+            frameNumber++;
+            if (next.empty()) {
+                next.release();
+                continue;
+            }
+            // the previous image is released only once the next one is read, so the
+            // next one cannot reuse its memory and be taken by the converter for it
+            releaseImage();
+            image = next;
+            return converter.convert(image);
+        }
+        return null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release() throws Exception {
+
+        releaseImage();
+        files = null;
+    }
+
+    /**
+     * Releases the image of the last grabbed frame.
+     */
+    private void releaseImage() {
+
+        if (image != null) {
+            image.release();
+            image = null;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package nifi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+
+import org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * Encodes captured images into the content of outgoing flow files.
+ * Implementations must be thread-safe.
+ */
+public interface ImageEncoder {
+
+    /**
+     * Encodes an image straight into a stream.
+     *
+     * @param aImage native image
+     * @param aStream output stream
+     * @throws IOException if the image cannot be encoded or written
+     */
+    void encode(Mat aImage, OutputStream aStream) throws IOException;
+
+    /**
+     * Returns the MIME type of encoded images.
+     *
+     * @return MIME type
+     */
+    String getMimeType();
+
+    /**
+     * Returns the file name extension of encoded images.
+     *
+     * @return extension, without the dot
+     */
+    String getExtension();
+
+    /**
+     * Returns flow file attributes needed to decode an encoded image.
+     *
+     * @param aImage native image
+     * @return attributes, empty if the encoding is self-describing
+     */
+    Map<String, String> getAttributes(Mat aImage);
+}
@@ -0,0 +1,122 @@
+package nifi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.nifi.annotation.behavior.InputRequirement;
+import org.apache.nifi.annotation.behavior.InputRequirement.Requirement;
+import org.apache.nifi.annotation.behavior.TriggerWhenEmpty;
+import org.apache.nifi.annotation.documentation.CapabilityDescription;
+import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.components.ValidationContext;
+import org.apache.nifi.components.ValidationResult;
+import org.apache.nifi.components.Validator;
+import org.apache.nifi.processor.ProcessContext;
+import org.apache.nifi.processor.ProcessorInitializationContext;
+
+/**
+ * A NiFi processor which captures several video sources at once, each with its
+ * own capture worker, and transfers the sampled frames of all of them tagged
+ * with the id of their source.
+ */
+@TriggerWhenEmpty
+@InputRequirement(Requirement.INPUT_FORBIDDEN)
+@Tags({"ekstream", "video", "stream", "capturing", "sampling", "multiple", "cameras"})
+@CapabilityDescription("Captures frames from several video sources, tagging each frame "
+        + "with the id of its source in the capture.source.id attribute.")
+public class MultiVideoCapturer extends VideoCapturer {
+
+    /** Pattern of a source entry, optionally prefixed with its id. */
+    private static final Pattern SOURCE_ENTRY = Pattern.compile("(?:([\\w.-]+)=)?(.+)");
+
+    /** Processor property. */
+    public static final PropertyDescriptor CAPTURE_SOURCES = new PropertyDescriptor.Builder()
+            .name("Capture sources")
+            .description("Specifies the sources frames are captured from, separated by commas or new lines. "
+                    + "Each source is given as for the 'Capture source' property of VideoCapturer, "
+                    + "optionally prefixed with its id, e.g. 'entrance=rtsp://...'. "
+                    + "Sources without an id are identified by their position, starting with 0.")
+            .required(true)
+            .addValidator(new Validator() {
+
+                @Override
+                public ValidationResult validate(final String aSubject, final String aInput,
+                        final ValidationContext aContext) {
+
+                    String explanation = null;
+                    try {
+                        parseSources(aInput);
+                    } catch (IllegalArgumentException e) {
+                        explanation = e.getMessage();
+                    }
+                    return new ValidationResult.Builder().subject(aSubject).input(aInput)
+                            .valid(explanation == null).explanation(explanation).build();
+                }
+            })
+            .build();
+
+    /** List of processor properties. */
+    private List<PropertyDescriptor> properties;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void init(final ProcessorInitializationContext context) {
+
+        super.init(context);
+
+        final List<PropertyDescriptor> supDescriptors = new ArrayList<>(super.getSupportedPropertyDescriptors());
+        supDescriptors.set(supDescriptors.indexOf(CAPTURE_SOURCE), CAPTURE_SOURCES);
+        properties = Collections.unmodifiableList(supDescriptors);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected List<PropertyDescriptor> getSupportedPropertyDescriptors() {
+        return properties;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Map<String, String> getCaptureSources(final ProcessContext aContext) {
+        return parseSources(aContext.getProperty(CAPTURE_SOURCES).getValue());
+    }
+
+    /**
+     * Parses a list of capture sources.
+     *
+     * @param aSources capture sources, separated by commas or new lines
+     * @return capture sources, by source id, in the order they were given
+     * @throws IllegalArgumentException if no source is given or an id is used twice
+     */
+    static Map<String, String> parseSources(final String aSources) {
+
+        final Map<String, String> sources = new LinkedHashMap<>();
+        for (String entry : aSources.split("[,\\r\\n]+")) {
+            if (entry.trim().isEmpty()) {
+                continue;
+            }
+            Matcher matcher = SOURCE_ENTRY.matcher(entry.trim());
+            matcher.matches();
+            String id = matcher.group(1) == null ? String.valueOf(sources.size()) : matcher.group(1);
+            if (sources.put(id, matcher.group(2).trim()) != null) {
+                throw new IllegalArgumentException("Source id " + id + " is used more than once");
+            }
+        }
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("At least one capture source is required");
+        }
+        return sources;
+    }
+}
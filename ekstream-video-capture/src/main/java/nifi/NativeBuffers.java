@@ -0,0 +1,58 @@
+package nifi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import org.bytedeco.javacpp.BytePointer;
+
+/**
+ * Streams native memory into Java output streams through a small per-thread
+ * transfer buffer, so no frame-sized array is allocated on the heap.
+ */
+public final class NativeBuffers {
+
+    /** Size of the transfer buffer, in bytes. */
+    private static final int TRANSFER_SIZE = 64 * 1024;
+
+    /** Transfer buffer of each thread. */
+    private static final ThreadLocal<byte[]> TRANSFER = new ThreadLocal<byte[]>() {
+
+        @Override
+        protected byte[] initialValue() {
+            return new byte[TRANSFER_SIZE];
+        }
+    };
+
+    /**
+     * Hidden constructor.
+     */
+    private NativeBuffers() {
+    }
+
+    /**
+     * Writes native bytes into a stream.
+     *
+     * @param aSource native bytes, starting at the current position
+     * @param aLength number of bytes to write
+     * @param aStream output stream
+     * @throws IOException if the stream cannot be written
+     */
+    public static void write(final BytePointer aSource, final long aLength, final OutputStream aStream)
+            throws IOException {
+
+        final byte[] transfer = TRANSFER.get();
+        final long start = aSource.position();
+        try {
+            long offset = 0;
+            while (offset < aLength) {
+                int chunk = (int) Math.min(transfer.length, aLength - offset);
+                aSource.position(start + offset);
+                aSource.get(transfer, 0, chunk);
+                aStream.write(transfer, 0, chunk);
+                offset += chunk;
+            }
+        } finally {
+            aSource.position(start);
+        }
+    }
+}
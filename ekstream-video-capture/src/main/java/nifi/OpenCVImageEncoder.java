@@ -0,0 +1,88 @@
+package nifi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Map;
+
+import org.bytedeco.javacpp.BytePointer;
+import org.bytedeco.javacpp.IntPointer;
+import org.bytedeco.javacpp.Loader;
+import org.bytedeco.javacpp.opencv_imgcodecs;
+import org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * Encodes images with the OpenCV codecs, e.g. JPEG, PNG or WebP.
+ */
+public class OpenCVImageEncoder implements ImageEncoder {
+
+    /** File name extension. */
+    private final String extension;
+
+    /** Extension selecting the OpenCV codec. */
+    private final String codec;
+
+    /** MIME type. */
+    private final String mimeType;
+
+    /** Encoding parameters, as pairs of OpenCV parameter ids and values. */
+    private final IntPointer params;
+
+    /**
+     * Constructor.
+     *
+     * @param aExtension file name extension selecting the codec
+     * @param aMimeType MIME type
+     * @param aParams encoding parameters, as pairs of OpenCV parameter ids and values
+     */
+    public OpenCVImageEncoder(final String aExtension, final String aMimeType, final int... aParams) {
+
+        extension = aExtension;
+        codec = "." + aExtension;
+        mimeType = aMimeType;
+        // the parameters are allocated natively, possibly before any OpenCV class has been used
+        Loader.load(opencv_imgcodecs.class);
+        params = new IntPointer(aParams);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encode(final Mat aImage, final OutputStream aStream) throws IOException {
+
+        BytePointer buffer = new BytePointer();
+        try {
+            if (!opencv_imgcodecs.imencode(codec, aImage, buffer, params)) {
+                throw new IOException("Could not encode the image as " + extension);
+            }
+            NativeBuffers.write(buffer, buffer.limit(), aStream);
+        } finally {
+            buffer.deallocate();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getAttributes(final Mat aImage) {
+        return Collections.emptyMap();
+    }
+}
@@ -0,0 +1,90 @@
+package nifi;
+
+import org.bytedeco.javacpp.opencv_imgcodecs;
+
+/**
+ * Output formats of captured frames, each backed by an image encoder.
+ */
+public enum OutputFormat {
+
+    /** Lossless PNG with a configurable compression level. */
+    PNG("png") {
+        @Override
+        public ImageEncoder createEncoder(final int aQuality, final int aCompression) {
+            return new OpenCVImageEncoder("png", "image/png",
+                    opencv_imgcodecs.IMWRITE_PNG_COMPRESSION, aCompression);
+        }
+    },
+
+    /** Lossy JPEG with a configurable quality. */
+    JPEG("jpeg") {
+        @Override
+        public ImageEncoder createEncoder(final int aQuality, final int aCompression) {
+            return new OpenCVImageEncoder("jpg", "image/jpeg",
+                    opencv_imgcodecs.IMWRITE_JPEG_QUALITY, aQuality);
+        }
+    },
+
+    /** WebP with a configurable quality. */
+    WEBP("webp") {
+        @Override
+        public ImageEncoder createEncoder(final int aQuality, final int aCompression) {
+            return new OpenCVImageEncoder("webp", "image/webp",
+                    opencv_imgcodecs.IMWRITE_WEBP_QUALITY, Math.max(1, aQuality));
+        }
+    },
+
+    /** Uncompressed pixels. */
+    RAW("raw-bgr") {
+        @Override
+        public ImageEncoder createEncoder(final int aQuality, final int aCompression) {
+            return new RawImageEncoder();
+        }
+    };
+
+    /** Property value. */
+    private final String value;
+
+    /**
+     * Constructor.
+     *
+     * @param aValue property value
+     */
+    OutputFormat(final String aValue) {
+        value = aValue;
+    }
+
+    /**
+     * Returns the property value of this format.
+     *
+     * @return property value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Creates an encoder for this format.
+     *
+     * @param aQuality quality of lossy formats, 0-100
+     * @param aCompression compression level of PNG, 0-9
+     * @return image encoder
+     */
+    public abstract ImageEncoder createEncoder(int aQuality, int aCompression);
+
+    /**
+     * Finds the format with the given property value.
+     *
+     * @param aValue property value
+     * @return output format
+     */
+    public static OutputFormat fromValue(final String aValue) {
+
+        for (OutputFormat format : values()) {
+            if (format.value.equals(aValue)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unknown output format: " + aValue);
+    }
+}
@@ -0,0 +1,53 @@
+package nifi;
+
+/**
+ * Defines what happens when a captured frame arrives at a full frame buffer.
+ */
+public enum OverflowPolicy {
+
+    /** The oldest buffered frame is overwritten. */
+    DROP_OLDEST("drop-oldest"),
+
+    /** The arriving frame is discarded. */
+    DROP_NEWEST("drop-newest"),
+
+    /** The capture thread waits until a frame has been consumed. */
+    BLOCK("block");
+
+    /** Property value. */
+    private final String value;
+
+    /**
+     * Constructor.
+     *
+     * @param aValue property value
+     */
+    OverflowPolicy(final String aValue) {
+        value = aValue;
+    }
+
+    /**
+     * Returns the property value of this policy.
+     *
+     * @return property value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Finds the policy with the given property value.
+     *
+     * @param aValue property value
+     * @return overflow policy
+     */
+    public static OverflowPolicy fromValue(final String aValue) {
+
+        for (OverflowPolicy policy : values()) {
+            if (policy.value.equals(aValue)) {
+                return policy;
+            }
+        }
+        throw new IllegalArgumentException("Unknown overflow policy: " + aValue);
+    }
+}
@@ -0,0 +1,129 @@
+package nifi;
+
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacpp.opencv_core.Size;
+import org.bytedeco.javacpp.opencv_imgproc;
+
+/**
+ * A frame filter which rejects near duplicates of recently buffered frames.
+ * Every frame is reduced to a 64 bit difference hash (dHash) of a 9x8
+ * grayscale thumbnail, and frames within a Hamming distance of any of the
+ * last buffered hashes are rejected. The hashes are kept in a primitive ring,
+ * and the hash of every buffered frame is attached to it.
+ */
+public class PerceptualHashFilter implements FrameFilter {
+
+    /** Thumbnail width, in pixels; one more than the hashed columns. */
+    private static final int THUMBNAIL_WIDTH = 9;
+
+    /** Thumbnail height, in pixels. */
+    private static final int THUMBNAIL_HEIGHT = 8;
+
+    /** Maximum Hamming distance of a rejected hash. */
+    private final int distance;
+
+    /** Hashes of the last buffered frames. */
+    private final long[] window;
+
+    /** Number of hashes ever added to the window. */
+    private long added;
+
+    /** Hash of the current frame. */
+    private long hash;
+
+    /** Thumbnail size. */
+    private final Size size = new Size(THUMBNAIL_WIDTH, THUMBNAIL_HEIGHT);
+
+    /** Thumbnail of the current frame. */
+    private final Mat thumbnail = new Mat();
+
+    /** Grayscale thumbnail of the current frame. */
+    private final Mat gray = new Mat();
+
+    /** Pixels of the grayscale thumbnail. */
+    private final byte[] pixels = new byte[THUMBNAIL_WIDTH * THUMBNAIL_HEIGHT];
+
+    /**
+     * Constructor.
+     *
+     * @param aWindowSize number of last buffered hashes compared with
+     * @param aDistance maximum Hamming distance of a rejected hash, from 0 to 64
+     */
+    public PerceptualHashFilter(final int aWindowSize, final int aDistance) {
+
+        if (aWindowSize < 1) {
+            throw new IllegalArgumentException("Window size must be positive: " + aWindowSize);
+        }
+        window = new long[aWindowSize];
+        distance = aDistance;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean accept(final Mat aImage) {
+
+        hash = hash(aImage);
+        final int count = (int) Math.min(added, window.length);
+        for (int i = 0; i < count; i++) {
+            if (Long.bitCount(hash ^ window[i]) <= distance) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void buffered(final CapturedFrame aFrame) {
+
+        window[(int) (added++ % window.length)] = hash;
+        aFrame.setPerceptualHash(hash);
+    }
+
+    /**
+     * Computes the difference hash of an image: every bit tells whether a
+     * pixel of the thumbnail is brighter than its right neighbour.
+     *
+     * @param aImage image
+     * @return hash
+     */
+    private long hash(final Mat aImage) {
+
+        opencv_imgproc.resize(aImage, thumbnail, size, 0, 0, opencv_imgproc.INTER_AREA);
+        if (thumbnail.channels() == 3) {
+            opencv_imgproc.cvtColor(thumbnail, gray, opencv_imgproc.COLOR_BGR2GRAY);
+        } else if (thumbnail.channels() == 4) {
+            opencv_imgproc.cvtColor(thumbnail, gray, opencv_imgproc.COLOR_BGRA2GRAY);
+        } else {
+            thumbnail.copyTo(gray);
+        }
+        gray.data().get(pixels);
+
+        long bits = 0;
+        for (int y = 0; y < THUMBNAIL_HEIGHT; y++) {
+            int row = y * THUMBNAIL_WIDTH;
+            for (int x = 0; x < THUMBNAIL_WIDTH - 1; x++) {
+                bits <<= 1;
+                if ((pixels[row + x] & 0xFF) > (pixels[row + x + 1] & 0xFF)) {
+                    bits |= 1;
+                }
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release() {
+
+        thumbnail.release();
+        gray.release();
+        size.deallocate();
+    }
+}
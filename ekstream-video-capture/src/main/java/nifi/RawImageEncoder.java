@@ -0,0 +1,73 @@
+package nifi;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.bytedeco.javacpp.opencv_core.Mat;
+
+/**
+ * Passes the uncompressed pixels through, i.e. interleaved BGR bytes for color
+ * images. The image geometry is described by flow file attributes.
+ */
+public class RawImageEncoder implements ImageEncoder {
+
+    /** Attribute holding the image width, in pixels. */
+    public static final String WIDTH_ATTRIBUTE = "raw.width";
+
+    /** Attribute holding the image height, in pixels. */
+    public static final String HEIGHT_ATTRIBUTE = "raw.height";
+
+    /** Attribute holding the length of an image row, in bytes. */
+    public static final String STRIDE_ATTRIBUTE = "raw.stride";
+
+    /** Attribute holding the number of channels per pixel. */
+    public static final String CHANNELS_ATTRIBUTE = "raw.channels";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void encode(final Mat aImage, final OutputStream aStream) throws IOException {
+
+        Mat continuous = aImage.isContinuous() ? aImage : aImage.clone();
+        try {
+            NativeBuffers.write(continuous.data(), continuous.total() * continuous.elemSize(), aStream);
+        } finally {
+            if (continuous != aImage) {
+                continuous.release();
+            }
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getMimeType() {
+        return "application/octet-stream";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getExtension() {
+        return "raw";
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<String, String> getAttributes(final Mat aImage) {
+
+        Map<String, String> attributes = new HashMap<>();
+        attributes.put(WIDTH_ATTRIBUTE, String.valueOf(aImage.cols()));
+        attributes.put(HEIGHT_ATTRIBUTE, String.valueOf(aImage.rows()));
+        attributes.put(STRIDE_ATTRIBUTE, String.valueOf(aImage.cols() * aImage.elemSize()));
+        attributes.put(CHANNELS_ATTRIBUTE, String.valueOf(aImage.channels()));
+        return attributes;
+    }
+}
@@ -0,0 +1,112 @@
+package nifi;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+
+/**
+ * Defines which frames of a compressed video source are decoded and
+ * converted. Modes other than {@link #ALL_FRAMES} only apply to FFmpeg
+ * grabbers; other grabbers always deliver every frame.
+ */
+public enum SamplingMode {
+
+    /** Every frame is decoded and converted. */
+    ALL_FRAMES("all-frames") {
+        @Override
+        public Frame grab(final FrameGrabber aGrabber, final boolean aDue) throws FrameGrabber.Exception {
+            return aGrabber.grab();
+        }
+    },
+
+    /**
+     * Frames that are not due are decoded without being converted, and frames
+     * no other frame depends on are not decoded at all.
+     */
+    SAMPLED_FRAMES("sampled-frames") {
+        @Override
+        public Frame grab(final FrameGrabber aGrabber, final boolean aDue) throws FrameGrabber.Exception {
+            return ((FFmpegFrameGrabber) aGrabber).grabFrame(false, true, aDue, false);
+        }
+    },
+
+    /** Only keyframes are decoded; the packets of all other frames are skipped. */
+    KEYFRAMES_ONLY("keyframes-only") {
+        @Override
+        public Frame grab(final FrameGrabber aGrabber, final boolean aDue) throws FrameGrabber.Exception {
+            return ((FFmpegFrameGrabber) aGrabber).grabKeyFrame();
+        }
+    };
+
+    /** Property value. */
+    private final String value;
+
+    /**
+     * Constructor.
+     *
+     * @param aValue property value
+     */
+    SamplingMode(final String aValue) {
+        value = aValue;
+    }
+
+    /**
+     * Returns the property value of this mode.
+     *
+     * @return property value
+     */
+    public String getValue() {
+        return value;
+    }
+
+    /**
+     * Checks whether the capture worker has to know if a frame is due before
+     * grabbing it.
+     *
+     * @return true if frames are paced before they are grabbed
+     */
+    public boolean isPacedBeforeGrab() {
+        return this == SAMPLED_FRAMES;
+    }
+
+    /**
+     * Grabs the next frame.
+     *
+     * @param aGrabber started frame grabber, configured for this mode
+     * @param aDue whether the frame is due, if frames are paced before they are grabbed
+     * @return frame, with an unconverted image if it is not due, or null at the end of the stream
+     * @throws FrameGrabber.Exception if the frame cannot be grabbed
+     */
+    public abstract Frame grab(FrameGrabber aGrabber, boolean aDue) throws FrameGrabber.Exception;
+
+    /**
+     * Sets the decoder options of this mode on a grabber which has not been started yet.
+     *
+     * @param aGrabber frame grabber
+     * @return mode the grabber is configured for, {@link #ALL_FRAMES} if this mode does not apply to it
+     */
+    public SamplingMode configure(final FrameGrabber aGrabber) {
+
+        if (this == ALL_FRAMES || !(aGrabber instanceof FFmpegFrameGrabber)) {
+            return ALL_FRAMES;
+        }
+        aGrabber.setVideoOption("skip_frame", this == KEYFRAMES_ONLY ? "nokey" : "nonref");
+        return this;
+    }
+
+    /**
+     * Finds the mode with the given property value.
+     *
+     * @param aValue property value
+     * @return sampling mode
+     */
+    public static SamplingMode fromValue(final String aValue) {
+
+        for (SamplingMode mode : values()) {
+            if (mode.value.equals(aValue)) {
+                return mode;
+            }
+        }
+        throw new IllegalArgumentException("Unknown sampling mode: " + aValue);
+    }
+}
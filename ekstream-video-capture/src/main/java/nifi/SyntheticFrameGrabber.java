@@ -0,0 +1,221 @@
+package nifi;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+
+/**
+ * A frame grabber which generates deterministic frames without any camera:
+ * a diagonal gradient moving by a few pixels per frame, overlaid with noise.
+ * The same seed, size and format always produce the same frame sequence.
+ * Rows are copied from a small precomputed table, so frames are generated
+ * much faster than they can be encoded.
+ */
+public class SyntheticFrameGrabber extends FrameGrabber {
+
+    /** Default frame width, in pixels. */
+    public static final int DEFAULT_WIDTH = 640;
+
+    /** Default frame height, in pixels. */
+    public static final int DEFAULT_HEIGHT = 480;
+
+    /** Gradient shift per frame, in pixels. */
+    private static final int SPEED = 2;
+
+    /** Number of noise variants of every gradient phase. */
+    private static final int NOISE_VARIANTS = 16;
+
+    /** Maximum noise amplitude. */
+    private static final int NOISE_AMPLITUDE = 16;
+
+    /** Seed of the noise. */
+    private final long seed;
+
+    /** Number of channels, 3 for BGR and 1 for grayscale frames. */
+    private int channels;
+
+    /** Rows of all gradient phases and noise variants, back to back. */
+    private byte[] pattern;
+
+    /** Reused output frame. */
+    private Frame frame;
+
+    /** Time the grabber was started, in ns of {@link System#nanoTime()}. */
+    private long startTime;
+
+    /**
+     * Constructor.
+     *
+     * @param aWidth frame width, in pixels
+     * @param aHeight frame height, in pixels
+     * @param aFrameRate frame rate, 0 to generate frames as fast as possible
+     * @param aGray whether to generate grayscale instead of BGR frames
+     * @param aSeed seed of the noise
+     */
+    public SyntheticFrameGrabber(final int aWidth, final int aHeight, final double aFrameRate,
+            final boolean aGray, final long aSeed) {
+
+        imageWidth = aWidth;
+        imageHeight = aHeight;
+        frameRate = aFrameRate;
+        imageMode = aGray ? ImageMode.GRAY : ImageMode.COLOR;
+        seed = aSeed;
+    }
+
+    /**
+     * Creates a grabber from a source description of the form
+     * {@code synthetic://WIDTHxHEIGHT?fps=25&format=bgr&seed=0}, where every part
+     * after the scheme is optional and the format is "bgr" or "gray".
+     *
+     * @param aSource source description
+     * @return frame grabber
+     * @throws Exception if the description is malformed
+     */
+    public static SyntheticFrameGrabber fromSource(final String aSource) throws Exception {
+
+        String spec = aSource.substring(aSource.indexOf("://") + 3);
+        String query = "";
+        int mark = spec.indexOf('?');
+        if (mark >= 0) {
+            query = spec.substring(mark + 1);
+            spec = spec.substring(0, mark);
+        }
+
+        int width = DEFAULT_WIDTH;
+        int height = DEFAULT_HEIGHT;
+        double fps = 25;
+        boolean gray = false;
+        long noiseSeed = 0;
+        try {
+            if (!spec.isEmpty()) {
+                String[] size = spec.split("x");
+                width = Integer.parseInt(size[0]);
+                height = Integer.parseInt(size[1]);
+            }
+            for (String param : query.split("&")) {
+                String[] pair = param.split("=", 2);
+                if (pair.length < 2) {
+                    continue;
+                }
+                if ("fps".equals(pair[0])) {
+                    fps = Double.parseDouble(pair[1]);
+                } else if ("format".equals(pair[0])) {
+                    gray = "gray".equalsIgnoreCase(pair[1]);
+                } else if ("seed".equals(pair[0])) {
+                    noiseSeed = Long.parseLong(pair[1]);
+                }
+            }
+        } catch (RuntimeException e) {
+            throw new Exception("Malformed synthetic source: " + aSource, e);
+        }
+        if (width < 1 || height < 1 || fps < 0) {
+            throw new Exception("Malformed synthetic source: " + aSource);
+        }
+        return new SyntheticFrameGrabber(width, height, fps, gray, noiseSeed);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void start() throws Exception {
+
+        channels = imageMode == ImageMode.GRAY ? 1 : 3;
+        frame = new Frame(imageWidth, imageHeight, Frame.DEPTH_UBYTE, channels);
+
+        // every phase of the gradient, repeated for each noise variant, plus one row
+        final int phases = 256 * NOISE_VARIANTS;
+        pattern = new byte[(phases + imageWidth) * channels];
+        final Random random = new Random(seed);
+        for (int i = 0; i < phases + imageWidth; i++) {
+            for (int c = 0; c < channels; c++) {
+                int noise = random.nextInt(2 * NOISE_AMPLITUDE + 1) - NOISE_AMPLITUDE;
+                pattern[i * channels + c] = (byte) Math.max(0, Math.min(255, ((i + c * 85) & 0xFF) + noise));
+            }
+        }
+
+        frameNumber = 0;
+        timestamp = 0;
+        startTime = System.nanoTime();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void stop() throws Exception {
+        release();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void trigger() throws Exception {
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Frame grab() throws Exception {
+
+        if (frame == null) {
+            throw new Exception("The grabber has not been started");
+        }
+        if (frameRate > 0) {
+            long due = startTime + (long) (frameNumber * TimeUnit.SECONDS.toNanos(1) / frameRate);
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            timestamp = (long) (frameNumber * TimeUnit.SECONDS.toMicros(1) / frameRate);
+        } else {
+            timestamp = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startTime);
+        }
+
+        final ByteBuffer pixels = (ByteBuffer) frame.image[0];
+        final int rowLength = imageWidth * channels;
+        final int shift = frameNumber * SPEED;
+        for (int y = 0; y < imageHeight; y++) {
+            int phase = (y + shift) & 0xFF;
+            int variant = mix(frameNumber, y) & (NOISE_VARIANTS - 1);
+            pixels.position(y * frame.imageStride);
+            pixels.put(pattern, (variant * 256 + phase) * channels, rowLength);
+        }
+        pixels.position(0);
+
+        frameNumber++;
+        return frame;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void release() throws Exception {
+
+        frame = null;
+        pattern = null;
+    }
+
+    /**
+     * Deterministically mixes a frame number and a row into a pseudo-random value.
+     *
+     * @param aFrameNumber frame number
+     * @param aRow row
+     * @return pseudo-random value
+     */
+    private int mix(final int aFrameNumber, final int aRow) {
+
+        long h = seed ^ (aFrameNumber * 0x9E3779B97F4A7C15L) ^ (aRow * 0xC2B2AE3D27D4EB4FL);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
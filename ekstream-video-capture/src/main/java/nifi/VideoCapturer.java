@@ -1,24 +1,46 @@
 package nifi;
 
-import java.awt.image.BufferedImage;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.OutputStream;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-
-import javax.imageio.ImageIO;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
 
 import org.apache.nifi.annotation.behavior.InputRequirement;
 import org.apache.nifi.annotation.behavior.TriggerWhenEmpty;
 import org.apache.nifi.annotation.behavior.InputRequirement.Requirement;
 import org.apache.nifi.annotation.documentation.CapabilityDescription;
 import org.apache.nifi.annotation.documentation.Tags;
+import org.apache.nifi.annotation.lifecycle.OnScheduled;
+import org.apache.nifi.annotation.lifecycle.OnStopped;
+import org.apache.nifi.annotation.lifecycle.OnUnscheduled;
 import org.apache.nifi.components.PropertyDescriptor;
+import org.apache.nifi.components.ValidationContext;
+import org.apache.nifi.components.ValidationResult;
 import org.apache.nifi.flowfile.FlowFile;
+import org.apache.nifi.flowfile.attributes.CoreAttributes;
 import org.apache.nifi.processor.AbstractProcessor;
 import org.apache.nifi.processor.ProcessContext;
 import org.apache.nifi.processor.ProcessSession;
@@ -30,18 +52,20 @@ import org.apache.nifi.processor.util.StandardValidators;
 import org.apache.nifi.stream.io.ByteArrayOutputStream;
 import org.apache.nifi.logging.ComponentLog;
 import org.bytedeco.javacpp.Loader;
-import org.bytedeco.javacpp.opencv_imgcodecs;
 import org.bytedeco.javacpp.opencv_core.IplImage;
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacpp.opencv_core.Rect;
+import org.bytedeco.javacpp.opencv_core.Size;
+import org.bytedeco.javacpp.opencv_imgproc;
 import org.bytedeco.javacpp.presets.opencv_objdetect;
 import org.bytedeco.javacv.Frame;
 import org.bytedeco.javacv.FrameGrabber;
-import org.bytedeco.javacv.Java2DFrameConverter;
 import org.bytedeco.javacv.FrameGrabber.Exception;
 import org.bytedeco.javacv.OpenCVFrameConverter;
 
 /**
- * A NiFi processor which accesses the default video camera, captures the video stream,
- * samples it into separate frames, and transfers forward for face recognition.
+ * A NiFi processor which accesses a video source, by default the default video camera,
+ * captures the video stream, samples it into separate frames, and transfers forward for face recognition.
  */
 @TriggerWhenEmpty
 @InputRequirement(Requirement.INPUT_FORBIDDEN)
@@ -53,15 +77,71 @@ public class VideoCapturer extends AbstractProcessor {
     public static final Relationship REL_SUCCESS = new Relationship.Builder().name("success")
             .description("Video frames have been properly captured.").build();
 
+    /** Relationship "no face", only available if frames without faces are routed. */
+    public static final Relationship REL_NO_FACE = new Relationship.Builder().name("no face")
+            .description("Video frames in which no face has been detected.").build();
+
+    /** Relationship "faces", only available if face crops are emitted. */
+    public static final Relationship REL_FACES = new Relationship.Builder().name("faces")
+            .description("Faces cropped out of the captured frames, one per flow file.").build();
+
+    /** Value of the "Face output" property emitting whole frames only. */
+    public static final String FACE_OUTPUT_FRAMES = "frames";
+
+    /** Value of the "Face output" property emitting face crops instead of the frames with faces. */
+    public static final String FACE_OUTPUT_CROPS = "crops";
+
+    /** Value of the "Face output" property emitting both frames and their face crops. */
+    public static final String FACE_OUTPUT_BOTH = "frames and crops";
+
+    /** Value of the "Frames without faces" property routing them to "no face". */
+    public static final String NO_FACE_ROUTE = "route";
+
+    /** Value of the "Frames without faces" property dropping them. */
+    public static final String NO_FACE_DROP = "drop";
+
+    /** Processor property. */
+    public static final PropertyDescriptor CAPTURE_SOURCE = new PropertyDescriptor.Builder()
+            .name("Capture source")
+            .description("Specifies where frames are captured from: a camera index (0 for the default camera), "
+                    + "a stream URL such as rtsp://... or http://..., a video file, "
+                    + "a directory of images replayed in file name order, one per second of video time unless "
+                    + "a capture frame rate is set, or generated frames "
+                    + "given as synthetic://WIDTHxHEIGHT?fps=25&format=bgr&seed=0 (format bgr or gray).")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+            .build();
+
     /** Processor property. */
     public static final PropertyDescriptor FRAME_INTERVAL = new PropertyDescriptor.Builder()
             .name("Time interval between frames")
-            .description("Specified the time interval between two captured video frames, in ms")
+            .description("Specified the time interval between two captured video frames, in ms. "
+                    + "Video files and image directories are paced by the timestamps of their frames, "
+                    + "other sources by the wall clock. "
+                    + "Triggers that arrive before the next frame is due yield instead of blocking, "
+                    + "so the yield duration should not exceed this interval.")
             .defaultValue("1000")
             .required(true)
             .addValidator(StandardValidators.INTEGER_VALIDATOR)
             .build();
 
+    /** Processor property. */
+    public static final PropertyDescriptor SAMPLING_MODE = new PropertyDescriptor.Builder()
+            .name("Sampling mode")
+            .description("Specifies which frames of video files and streams are decoded: all frames; "
+                    + "only as much as needed for the sampled frames, in which case frames that are not due "
+                    + "are decoded without being converted and frames no other frame depends on are skipped; "
+                    + "or keyframes only, skipping the packets of all other frames, which is the cheapest way "
+                    + "to thumbnail recorded video. Keyframes are still sampled by the time interval between "
+                    + "frames, which for video files is measured in video time; set it to 0 to keep every "
+                    + "keyframe. Cameras, image directories and synthetic sources always deliver all frames.")
+            .allowableValues(SamplingMode.ALL_FRAMES.getValue(), SamplingMode.SAMPLED_FRAMES.getValue(),
+                    SamplingMode.KEYFRAMES_ONLY.getValue())
+            .defaultValue(SamplingMode.ALL_FRAMES.getValue())
+            .required(true)
+            .build();
+
     /** Processor property. */
     public static final PropertyDescriptor SAVE_IMAGES = new PropertyDescriptor.Builder()
             .name("Save images")
@@ -72,23 +152,478 @@ public class VideoCapturer extends AbstractProcessor {
             .addValidator(StandardValidators.BOOLEAN_VALIDATOR)
             .build();
 
+    /** Processor property. */
+    public static final PropertyDescriptor ARCHIVE_DIRECTORY = new PropertyDescriptor.Builder()
+            .name("Archive directory")
+            .description("Specifies the directory where interim results are saved, "
+                    + "in one subfolder per day.")
+            .defaultValue(".")
+            .required(true)
+            .addValidator(StandardValidators.createDirectoryExistsValidator(false, true))
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor ARCHIVE_QUEUE_SIZE = new PropertyDescriptor.Builder()
+            .name("Archive queue size")
+            .description("Specifies how many interim results may wait to be saved. "
+                    + "Further results are not saved until the queue has room again.")
+            .defaultValue("100")
+            .required(true)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor BUFFER_SIZE = new PropertyDescriptor.Builder()
+            .name("Frame buffer size")
+            .description("Specifies how many captured frames may wait in memory to be transferred.")
+            .defaultValue("10")
+            .required(true)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor OVERFLOW_POLICY = new PropertyDescriptor.Builder()
+            .name("Buffer overflow policy")
+            .description("Specifies what happens to a captured frame when the frame buffer is full: "
+                    + "the oldest buffered frame is dropped, the new frame is dropped, "
+                    + "or capturing blocks until a frame has been transferred.")
+            .allowableValues(OverflowPolicy.DROP_OLDEST.getValue(), OverflowPolicy.DROP_NEWEST.getValue(),
+                    OverflowPolicy.BLOCK.getValue())
+            .defaultValue(OverflowPolicy.DROP_OLDEST.getValue())
+            .required(true)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor OUTPUT_FORMAT = new PropertyDescriptor.Builder()
+            .name("Output format")
+            .description("Specifies how captured frames are encoded: PNG, JPEG, WebP, "
+                    + "or uncompressed pixels described by raw.* attributes.")
+            .allowableValues(OutputFormat.PNG.getValue(), OutputFormat.JPEG.getValue(),
+                    OutputFormat.WEBP.getValue(), OutputFormat.RAW.getValue())
+            .defaultValue(OutputFormat.PNG.getValue())
+            .required(true)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor IMAGE_QUALITY = new PropertyDescriptor.Builder()
+            .name("Image quality")
+            .description("Specifies the quality of JPEG and WebP images, from 0 to 100.")
+            .defaultValue("95")
+            .required(true)
+            .addValidator(StandardValidators.createLongValidator(0, 100, true))
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor PNG_COMPRESSION = new PropertyDescriptor.Builder()
+            .name("PNG compression level")
+            .description("Specifies the compression level of PNG images, from 0 (fastest) to 9 (smallest).")
+            .defaultValue("3")
+            .required(true)
+            .addValidator(StandardValidators.createLongValidator(0, 9, true))
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor FRAMES_PER_BATCH = new PropertyDescriptor.Builder()
+            .name("Frames per batch")
+            .description("Specifies the maximum number of flow files, i.e. frames or frame bundles, "
+                    + "transferred under a single session commit.")
+            .defaultValue("1")
+            .required(true)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor MAX_BATCH_LATENCY = new PropertyDescriptor.Builder()
+            .name("Maximum batch latency")
+            .description("Specifies how long a batch may wait for more frames, in ms after the first "
+                    + "frame of the batch was captured, and how long captured frames may wait in the frame "
+                    + "buffer for a bundle to fill up. With 0, a batch only takes the frames already buffered; "
+                    + "bundling frames requires a positive latency.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor FRAMES_PER_BUNDLE = new PropertyDescriptor.Builder()
+            .name("Frames per bundle")
+            .description("Specifies how many consecutive frames are packed into a single flow file, "
+                    + "followed by an index of frame offsets, timestamps and numbers. Frames stay in the frame "
+                    + "buffer until a full bundle has been captured or the oldest of them has waited for the "
+                    + "maximum batch latency, so the buffer must hold a full bundle and the latency must be "
+                    + "positive. With 1, every frame is transferred in its own flow file.")
+            .defaultValue("1")
+            .required(true)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Attribute holding the number of frames in a bundle. */
+    public static final String BUNDLE_COUNT_ATTRIBUTE = "bundle.frame.count";
+
+    /** Attribute holding the MIME type of the frames in a bundle. */
+    public static final String BUNDLE_MIME_TYPE_ATTRIBUTE = "bundle.frame.mime.type";
+
+    /** Attribute holding the id of the capture source. */
+    public static final String SOURCE_ID_ATTRIBUTE = "capture.source.id";
+
+    /** Attribute holding the presentation timestamp reported by the grabber, in microseconds. */
+    public static final String TIMESTAMP_ATTRIBUTE = "capture.timestamp";
+
+    /** Attribute holding the wall clock time the frame was grabbed, in ms since the epoch. */
+    public static final String CAPTURE_TIME_ATTRIBUTE = "capture.time";
+
+    /** Attribute holding whether the grabber reported the frame as a keyframe. */
+    public static final String KEYFRAME_ATTRIBUTE = "capture.keyframe";
+
+    /** Attribute holding the frame number reported by the grabber. */
+    public static final String FRAME_NUMBER_ATTRIBUTE = "capture.frame.number";
+
+    /** Attribute holding the perceptual hash of the image, as 16 hexadecimal digits. */
+    public static final String PERCEPTUAL_HASH_ATTRIBUTE = "capture.phash";
+
+    /** Attribute holding the number of detected faces. */
+    public static final String FACE_COUNT_ATTRIBUTE = "face.count";
+
+    /** Attribute holding the index of a face crop among the faces of its frame. */
+    public static final String FACE_INDEX_ATTRIBUTE = "face.index";
+
+    /** Attribute holding the left edge of a face crop in its frame, in pixels. */
+    public static final String FACE_X_ATTRIBUTE = "face.x";
+
+    /** Attribute holding the top edge of a face crop in its frame, in pixels. */
+    public static final String FACE_Y_ATTRIBUTE = "face.y";
+
+    /** Attribute holding the width of a face crop in its frame, in pixels. */
+    public static final String FACE_WIDTH_ATTRIBUTE = "face.width";
+
+    /** Attribute holding the height of a face crop in its frame, in pixels. */
+    public static final String FACE_HEIGHT_ATTRIBUTE = "face.height";
+
+    /** Attribute holding the uuid of the flow file of the frame a face was cropped from. */
+    public static final String FACE_PARENT_ATTRIBUTE = "face.parent.uuid";
+
+    /** Attribute holding the image width, in pixels. */
+    public static final String WIDTH_ATTRIBUTE = "image.width";
+
+    /** Attribute holding the image height, in pixels. */
+    public static final String HEIGHT_ATTRIBUTE = "image.height";
+
+    /** Attribute holding the number of image channels. */
+    public static final String CHANNELS_ATTRIBUTE = "image.channels";
+
+    /** Attribute holding the output format of the image. */
+    public static final String ENCODING_ATTRIBUTE = "image.encoding";
+
+    /** Processor property. */
+    public static final PropertyDescriptor CAPTURE_WIDTH = new PropertyDescriptor.Builder()
+            .name("Capture width")
+            .description("Specifies the frame width, in pixels, requested from the capture source "
+                    + "before it is started. With 0, the source default is used.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor CAPTURE_HEIGHT = new PropertyDescriptor.Builder()
+            .name("Capture height")
+            .description("Specifies the frame height, in pixels, requested from the capture source "
+                    + "before it is started. With 0, the source default is used.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor CAPTURE_FRAME_RATE = new PropertyDescriptor.Builder()
+            .name("Capture frame rate")
+            .description("Specifies the frame rate, in frames per second, requested from the capture source "
+                    + "before it is started. With 0, the source default is used.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.createRegexMatchingValidator(Pattern.compile("\\d+(\\.\\d+)?")))
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor CAPTURE_PIXEL_FORMAT = new PropertyDescriptor.Builder()
+            .name("Capture pixel format")
+            .description("Specifies the FFmpeg name of the pixel format requested from the capture source, "
+                    + "e.g. 'bgr24', 'gray' or 'yuyv422'. Without a format, the source default is used.")
+            .required(false)
+            .addValidator(StandardValidators.NON_EMPTY_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor CAPTURE_IMAGE_MODE = new PropertyDescriptor.Builder()
+            .name("Capture image mode")
+            .description("Specifies whether the capture source delivers color or grayscale frames, "
+                    + "or frames in its raw pixel format. Without a mode, the source default is used, "
+                    + "e.g. the format of a synthetic source.")
+            .allowableValues("color", "gray", "raw")
+            .required(false)
+            .build();
+
+    /** Pattern of a crop region, x,y,width,height. */
+    private static final Pattern CROP_REGION_PATTERN =
+            Pattern.compile("\\s*\\d+\\s*,\\s*\\d+\\s*,\\s*0*[1-9]\\d*\\s*,\\s*0*[1-9]\\d*\\s*");
+
+    /** Processor property. */
+    public static final PropertyDescriptor CROP_REGION = new PropertyDescriptor.Builder()
+            .name("Crop region")
+            .description("Specifies the region of interest frames are cropped to before any other processing, "
+                    + "as 'x,y,width,height' in pixels of the captured frame. Without a region, "
+                    + "whole frames are kept.")
+            .required(false)
+            .addValidator(StandardValidators.createRegexMatchingValidator(CROP_REGION_PATTERN))
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor OUTPUT_WIDTH = new PropertyDescriptor.Builder()
+            .name("Output width")
+            .description("Specifies the width, in pixels, frames are resized to before they are filtered "
+                    + "and encoded. With 0, the width follows from the output height and the aspect ratio, "
+                    + "or is kept if both are 0.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor OUTPUT_HEIGHT = new PropertyDescriptor.Builder()
+            .name("Output height")
+            .description("Specifies the height, in pixels, frames are resized to before they are filtered "
+                    + "and encoded. With 0, the height follows from the output width and the aspect ratio, "
+                    + "or is kept if both are 0.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor RESIZE_INTERPOLATION = new PropertyDescriptor.Builder()
+            .name("Resize interpolation")
+            .description("Specifies how frames are resized: 'area' averages pixels and suits downscaling, "
+                    + "'nearest' is the fastest, 'linear' and 'cubic' suit upscaling.")
+            .allowableValues("nearest", "linear", "area", "cubic")
+            .defaultValue("area")
+            .required(true)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor GRAYSCALE = new PropertyDescriptor.Builder()
+            .name("Convert to grayscale")
+            .description("Specifies whether color frames are converted to grayscale before they are resized, "
+                    + "filtered and encoded.")
+            .allowableValues("true", "false")
+            .defaultValue("false")
+            .required(true)
+            .addValidator(StandardValidators.BOOLEAN_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor ENCODER_THREADS = new PropertyDescriptor.Builder()
+            .name("Encoder threads")
+            .description("Specifies how many threads encode the frames of a batch in parallel. Frames are "
+                    + "still transferred in the order they were captured. With 1, frames are encoded by the "
+                    + "trigger thread itself, straight into the flow file content; with 0, one thread per "
+                    + "available processor is used. Triggers which poll a single frame always encode it on the "
+                    + "trigger thread.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor CHANGE_THRESHOLD = new PropertyDescriptor.Builder()
+            .name("Change threshold")
+            .description("Specifies how much a sampled frame must differ from the last transferred one "
+                    + "to be transferred, as the mean absolute difference of their downscaled grayscale "
+                    + "versions in intensity levels, from 0 to 255. Unchanged frames are skipped before "
+                    + "they are buffered and encoded. With 0, every sampled frame is transferred.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.createLongValidator(0, 255, true))
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor DUPLICATE_WINDOW = new PropertyDescriptor.Builder()
+            .name("Duplicate window")
+            .description("Specifies with how many last transferred frames of the same source every sampled "
+                    + "frame is compared by perceptual hash. Near duplicates are skipped before they are "
+                    + "buffered and encoded, and the hash is set in the capture.phash attribute. "
+                    + "With 0, frames are not hashed.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor DUPLICATE_DISTANCE = new PropertyDescriptor.Builder()
+            .name("Duplicate distance")
+            .description("Specifies the maximum number of differing bits of the 64 bit perceptual hashes "
+                    + "of two frames for them to be considered duplicates.")
+            .defaultValue("4")
+            .required(true)
+            .addValidator(StandardValidators.createLongValidator(0, 64, true))
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor FACE_CASCADE = new PropertyDescriptor.Builder()
+            .name("Face cascade file")
+            .description("Specifies the OpenCV Haar or LBP cascade faces are detected with before frames are "
+                    + "buffered and encoded. The number of faces is set in the face.count attribute. "
+                    + "Without a cascade, faces are not detected.")
+            .required(false)
+            .addValidator(StandardValidators.FILE_EXISTS_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor FACE_DETECTION_WIDTH = new PropertyDescriptor.Builder()
+            .name("Face detection width")
+            .description("Specifies the width, in pixels, wider frames are downscaled to before faces are "
+                    + "detected. Smaller widths are faster but miss small faces.")
+            .defaultValue("320")
+            .required(true)
+            .addValidator(StandardValidators.POSITIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor NO_FACE_HANDLING = new PropertyDescriptor.Builder()
+            .name("Frames without faces")
+            .description("Specifies whether frames in which no face has been detected are routed "
+                    + "to the 'no face' relationship or dropped before they are encoded.")
+            .allowableValues(NO_FACE_ROUTE, NO_FACE_DROP)
+            .defaultValue(NO_FACE_ROUTE)
+            .required(true)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor FACE_OUTPUT = new PropertyDescriptor.Builder()
+            .name("Face output")
+            .description("Specifies whether frames with faces are transferred to 'success' as a whole, "
+                    + "only their faces are cropped out and transferred to 'faces', or both, in which case "
+                    + "the crops are children of the frame flow file. Requires a face cascade.")
+            .allowableValues(FACE_OUTPUT_FRAMES, FACE_OUTPUT_CROPS, FACE_OUTPUT_BOTH)
+            .defaultValue(FACE_OUTPUT_FRAMES)
+            .required(true)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor FACE_CROP_SIZE = new PropertyDescriptor.Builder()
+            .name("Face crop size")
+            .description("Specifies the width and height, in pixels, face crops are resized to. "
+                    + "With 0, crops keep the size they were detected with.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Processor property. */
+    public static final PropertyDescriptor METRICS_LOG_INTERVAL = new PropertyDescriptor.Builder()
+            .name("Metrics log interval")
+            .description("Specifies how often the frame counters and the p50/p99/max latencies of the "
+                    + "grab, transform, filter, buffer, encode, save and commit stages are logged, in ms. "
+                    + "With 0, they are not logged.")
+            .defaultValue("0")
+            .required(true)
+            .addValidator(StandardValidators.NON_NEGATIVE_INTEGER_VALIDATOR)
+            .build();
+
+    /** Name of the counter of dropped frames. */
+    public static final String DROPPED_FRAMES_COUNTER = "Dropped frames";
+
+    /** Name of the counter of grabbed frames. */
+    public static final String GRABBED_FRAMES_COUNTER = "Grabbed frames";
+
+    /** Name of the counter of sampled frames skipped by a frame filter. */
+    public static final String SKIPPED_FRAMES_COUNTER = "Skipped frames";
+
+    /** Name of the counter of transferred frames. */
+    public static final String EMITTED_FRAMES_COUNTER = "Emitted frames";
+
+    /** Name of the counter of frames which could not be grabbed or transferred. */
+    public static final String FAILED_FRAMES_COUNTER = "Failed frames";
+
+    /** Name of the counter of frames not saved because the archive queue was full. */
+    public static final String UNARCHIVED_FRAMES_COUNTER = "Unarchived frames";
+
+    /** Time a batch parks while waiting for more frames, in ns. */
+    private static final long BATCH_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /** Time to wait for the capture workers to finish on shutdown, in ms. */
+    private static final long SHUTDOWN_TIMEOUT = TimeUnit.SECONDS.toMillis(5);
+
     /** List of processor properties. */
     private List<PropertyDescriptor> properties;
 
     /** List of processor relationships. */
-    private Set<Relationship> relationships;
+    private volatile Set<Relationship> relationships;
+
+    /** Whether a face cascade is configured. */
+    private volatile boolean detectFaces;
+
+    /** Whether frames without faces are routed instead of dropped. */
+    private volatile boolean routeNoFace = true;
+
+    /** Whether face crops may be emitted. */
+    private volatile boolean cropFaces;
+
+    /** Whether frames with faces are transferred while capturing. */
+    private volatile boolean emitFrames = true;
 
-    /** JavaCV frame grabber. */
-    private static FrameGrabber grabber;
+    /** Whether face crops are transferred while capturing. */
+    private volatile boolean emitCrops;
 
-    /** Converter for Frames and IplImages. */
-    private static OpenCVFrameConverter.ToIplImage converter;
+    /** Size face crops are resized to while capturing, 0 to keep their size. */
+    private volatile int cropSize;
 
-    /** Converter for byte arrays and images. */
-    private static Java2DFrameConverter flatConverter;
+    /** Encoder of the images converted into byte arrays. */
+    private static final ImageEncoder PNG_ENCODER = OutputFormat.PNG.createEncoder(0, 3);
 
     /** Logger. */
-    private static ComponentLog logger;
+    private ComponentLog logger;
+
+    /** Capture channels, one per source, empty when not capturing. */
+    private volatile List<CaptureChannel> channels = Collections.emptyList();
+
+    /** Threads running the capture workers, one per channel. */
+    private volatile ExecutorService captureExecutor;
+
+    /** Threads encoding frames in parallel, null if frames are encoded by the trigger threads. */
+    private volatile ExecutorService encoderExecutor;
+
+    /** Channel the next trigger starts draining from. */
+    private final AtomicInteger nextChannel = new AtomicInteger();
+
+    /** Encoder of the captured frames. */
+    private volatile ImageEncoder encoder;
+
+    /** Output format of the images. */
+    private volatile OutputFormat format;
+
+    /** Background writer of interim results, null if they are not saved. */
+    private volatile FrameArchiver archiver;
+
+    /** Frame holders reused by the triggers. */
+    private final ConcurrentLinkedQueue<CapturedFrame> framePool = new ConcurrentLinkedQueue<>();
+
+    /** Number of dropped frames already added to the counter. */
+    private final AtomicLong reportedDrops = new AtomicLong();
+
+    /** Number of grabbed frames already added to the counter. */
+    private final AtomicLong reportedGrabs = new AtomicLong();
+
+    /** Number of skipped frames already added to the counter. */
+    private final AtomicLong reportedSkips = new AtomicLong();
+
+    /** Number of failed frames already added to the counter. */
+    private final AtomicLong reportedFailures = new AtomicLong();
+
+    /** Time the metrics are logged next, in ns of {@link System#nanoTime()}. */
+    private final AtomicLong nextMetricsLog = new AtomicLong();
+
+    /** Pipeline metrics since the processor was last scheduled. */
+    private volatile CaptureMetrics metrics = new CaptureMetrics();
 
     /**
      * {@inheritDoc}
@@ -100,23 +635,45 @@ public class VideoCapturer extends AbstractProcessor {
 
         logger = getLogger();
 
-        final Set<Relationship> procRels = new HashSet<>();
-        procRels.add(REL_SUCCESS);
-        relationships = Collections.unmodifiableSet(procRels);
+        updateRelationships();
 
         final List<PropertyDescriptor> supDescriptors = new ArrayList<>();
+        supDescriptors.add(CAPTURE_SOURCE);
+        supDescriptors.add(CAPTURE_WIDTH);
+        supDescriptors.add(CAPTURE_HEIGHT);
+        supDescriptors.add(CAPTURE_FRAME_RATE);
+        supDescriptors.add(CAPTURE_PIXEL_FORMAT);
+        supDescriptors.add(CAPTURE_IMAGE_MODE);
         supDescriptors.add(FRAME_INTERVAL);
+        supDescriptors.add(SAMPLING_MODE);
         supDescriptors.add(SAVE_IMAGES);
+        supDescriptors.add(ARCHIVE_DIRECTORY);
+        supDescriptors.add(ARCHIVE_QUEUE_SIZE);
+        supDescriptors.add(BUFFER_SIZE);
+        supDescriptors.add(OVERFLOW_POLICY);
+        supDescriptors.add(OUTPUT_FORMAT);
+        supDescriptors.add(IMAGE_QUALITY);
+        supDescriptors.add(PNG_COMPRESSION);
+        supDescriptors.add(FRAMES_PER_BATCH);
+        supDescriptors.add(MAX_BATCH_LATENCY);
+        supDescriptors.add(FRAMES_PER_BUNDLE);
+        supDescriptors.add(ENCODER_THREADS);
+        supDescriptors.add(CROP_REGION);
+        supDescriptors.add(OUTPUT_WIDTH);
+        supDescriptors.add(OUTPUT_HEIGHT);
+        supDescriptors.add(RESIZE_INTERPOLATION);
+        supDescriptors.add(GRAYSCALE);
+        supDescriptors.add(CHANGE_THRESHOLD);
+        supDescriptors.add(DUPLICATE_WINDOW);
+        supDescriptors.add(DUPLICATE_DISTANCE);
+        supDescriptors.add(FACE_CASCADE);
+        supDescriptors.add(FACE_DETECTION_WIDTH);
+        supDescriptors.add(NO_FACE_HANDLING);
+        supDescriptors.add(FACE_OUTPUT);
+        supDescriptors.add(FACE_CROP_SIZE);
+        supDescriptors.add(METRICS_LOG_INTERVAL);
         properties = Collections.unmodifiableList(supDescriptors);
 
-        try {
-            grabber = FrameGrabber.createDefault(0);
-        } catch (Exception e) {
-            logger.error("Something went wrong with the video capture!", e);
-        }
-        converter = new OpenCVFrameConverter.ToIplImage();
-        flatConverter = new Java2DFrameConverter();
-
         logger.info("Initialision complete!");
     }
 
@@ -128,6 +685,42 @@ public class VideoCapturer extends AbstractProcessor {
         return relationships;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onPropertyModified(final PropertyDescriptor aDescriptor, final String aOldValue,
+            final String aNewValue) {
+
+        if (aDescriptor.equals(FACE_CASCADE)) {
+            detectFaces = aNewValue != null;
+        } else if (aDescriptor.equals(NO_FACE_HANDLING)) {
+            routeNoFace = !NO_FACE_DROP.equals(aNewValue);
+        } else if (aDescriptor.equals(FACE_OUTPUT)) {
+            cropFaces = aNewValue != null && !FACE_OUTPUT_FRAMES.equals(aNewValue);
+        } else {
+            return;
+        }
+        updateRelationships();
+    }
+
+    /**
+     * Offers the "no face" relationship only while frames without faces are
+     * routed there, and the "faces" relationship only while faces are cropped.
+     */
+    private void updateRelationships() {
+
+        final Set<Relationship> procRels = new HashSet<>();
+        procRels.add(REL_SUCCESS);
+        if (detectFaces && routeNoFace) {
+            procRels.add(REL_NO_FACE);
+        }
+        if (detectFaces && cropFaces) {
+            procRels.add(REL_FACES);
+        }
+        relationships = Collections.unmodifiableSet(procRels);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -136,6 +729,304 @@ public class VideoCapturer extends AbstractProcessor {
         return properties;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Collection<ValidationResult> customValidate(final ValidationContext aContext) {
+
+        final List<ValidationResult> results = new ArrayList<>();
+        final int bundleSize = aContext.getProperty(FRAMES_PER_BUNDLE).asInteger();
+        if (bundleSize > 1 && aContext.getProperty(MAX_BATCH_LATENCY).asLong() == 0) {
+            results.add(new ValidationResult.Builder().subject(MAX_BATCH_LATENCY.getName()).valid(false)
+                    .explanation("frames can only be bundled with a positive maximum batch latency").build());
+        }
+        if (bundleSize > aContext.getProperty(BUFFER_SIZE).asInteger()) {
+            results.add(new ValidationResult.Builder().subject(BUFFER_SIZE.getName()).valid(false)
+                    .explanation("the frame buffer must hold at least one full frame bundle").build());
+        }
+        if (!FACE_OUTPUT_FRAMES.equals(aContext.getProperty(FACE_OUTPUT).getValue())
+                && aContext.getProperty(FACE_CASCADE).getValue() == null) {
+            results.add(new ValidationResult.Builder().subject(FACE_OUTPUT.getName()).valid(false)
+                    .explanation("faces can only be cropped out with a face cascade").build());
+        }
+        return results;
+    }
+
+    /**
+     * Returns the capture sources of this processor.
+     *
+     * @param aContext process context
+     * @return capture sources, by source id
+     */
+    protected Map<String, String> getCaptureSources(final ProcessContext aContext) {
+        return Collections.singletonMap("0", aContext.getProperty(CAPTURE_SOURCE).getValue());
+    }
+
+    /**
+     * Opens the capture session once and starts a background worker per source
+     * which buffers the sampled frames, so that every trigger only drains the buffers.
+     *
+     * @param aContext process context
+     */
+    @OnScheduled
+    public void startCapture(final ProcessContext aContext) {
+
+        final int bufferSize = aContext.getProperty(BUFFER_SIZE).asInteger();
+        final OverflowPolicy policy = OverflowPolicy.fromValue(aContext.getProperty(OVERFLOW_POLICY).getValue());
+        final long interval = aContext.getProperty(FRAME_INTERVAL).asLong();
+        final SamplingMode mode = SamplingMode.fromValue(aContext.getProperty(SAMPLING_MODE).getValue());
+        final Map<String, String> sources = getCaptureSources(aContext);
+
+        reportedDrops.set(0);
+        reportedGrabs.set(0);
+        reportedSkips.set(0);
+        reportedFailures.set(0);
+        nextMetricsLog.set(System.nanoTime());
+        metrics = new CaptureMetrics();
+        final String faceOutput = aContext.getProperty(FACE_OUTPUT).getValue();
+        emitCrops = aContext.getProperty(FACE_CASCADE).getValue() != null && !FACE_OUTPUT_FRAMES.equals(faceOutput);
+        emitFrames = !FACE_OUTPUT_CROPS.equals(faceOutput);
+        cropSize = aContext.getProperty(FACE_CROP_SIZE).asInteger();
+        format = OutputFormat.fromValue(aContext.getProperty(OUTPUT_FORMAT).getValue());
+        encoder = format.createEncoder(
+                aContext.getProperty(IMAGE_QUALITY).asInteger(),
+                aContext.getProperty(PNG_COMPRESSION).asInteger());
+        if (aContext.getProperty(SAVE_IMAGES).asBoolean()) {
+            archiver = new FrameArchiver("VideoCapturer-archiver-" + getIdentifier(),
+                    Paths.get(aContext.getProperty(ARCHIVE_DIRECTORY).getValue()),
+                    aContext.getProperty(ARCHIVE_QUEUE_SIZE).asInteger(), metrics, logger);
+            archiver.start();
+        }
+        captureExecutor = Executors.newFixedThreadPool(sources.size(), newThreadFactory("capture"));
+        int encoderThreads = aContext.getProperty(ENCODER_THREADS).asInteger();
+        if (encoderThreads == 0) {
+            encoderThreads = Runtime.getRuntime().availableProcessors();
+        }
+        if (encoderThreads > 1) {
+            encoderExecutor = Executors.newFixedThreadPool(encoderThreads, newThreadFactory("encoder"));
+        }
+
+        final String imageMode = aContext.getProperty(CAPTURE_IMAGE_MODE).getValue();
+        final GrabberSettings settings = new GrabberSettings(
+                aContext.getProperty(CAPTURE_WIDTH).asInteger(), aContext.getProperty(CAPTURE_HEIGHT).asInteger(),
+                Double.parseDouble(aContext.getProperty(CAPTURE_FRAME_RATE).getValue()),
+                aContext.getProperty(CAPTURE_PIXEL_FORMAT).getValue(),
+                imageMode == null ? null : FrameGrabber.ImageMode.valueOf(imageMode.toUpperCase()));
+        final List<CaptureChannel> started = new ArrayList<>(sources.size());
+        try {
+            for (Map.Entry<String, String> source : sources.entrySet()) {
+                FrameGrabber grabber = CaptureSources.createGrabber(source.getValue());
+                boolean recorded = CaptureSources.isRecorded(source.getValue());
+                CaptureChannel channel = new CaptureChannel(source.getKey(), grabber, recorded,
+                        new FrameRingBuffer(bufferSize, policy));
+                started.add(channel);
+                settings.apply(grabber);
+                channel.start(new FramePacer(interval, recorded), mode, createTransform(aContext), createFilters(aContext),
+                        captureExecutor, metrics, logger);
+            }
+        } catch (Exception | RuntimeException e) {
+            logger.error("Something went wrong with the video capture!", e);
+            channels = Collections.unmodifiableList(started);
+            stopCapture();
+            throw new ProcessException(e);
+        }
+        channels = Collections.unmodifiableList(started);
+    }
+
+    /**
+     * Creates a factory of daemon threads named after this processor.
+     *
+     * @param aRole role of the threads, part of their names
+     * @return thread factory
+     */
+    private ThreadFactory newThreadFactory(final String aRole) {
+
+        return new ThreadFactory() {
+
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable aTask) {
+
+                Thread thread = new Thread(aTask, "VideoCapturer-" + aRole + "-" + getIdentifier()
+                        + "-" + count.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        };
+    }
+
+    /**
+     * Creates the frame transform of a capture source.
+     *
+     * @param aContext process context
+     * @return frame transform, null if frames are kept as grabbed
+     */
+    private static FrameTransform createTransform(final ProcessContext aContext) {
+
+        int[] region = null;
+        final String crop = aContext.getProperty(CROP_REGION).getValue();
+        if (crop != null) {
+            String[] parts = crop.split(",");
+            region = new int[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                region[i] = Integer.parseInt(parts[i].trim());
+            }
+        }
+
+        final int interpolation;
+        switch (aContext.getProperty(RESIZE_INTERPOLATION).getValue()) {
+        case "nearest":
+            interpolation = opencv_imgproc.INTER_NEAREST;
+            break;
+        case "linear":
+            interpolation = opencv_imgproc.INTER_LINEAR;
+            break;
+        case "cubic":
+            interpolation = opencv_imgproc.INTER_CUBIC;
+            break;
+        default:
+            interpolation = opencv_imgproc.INTER_AREA;
+        }
+
+        final FrameTransform transform = new FrameTransform(region,
+                aContext.getProperty(OUTPUT_WIDTH).asInteger(), aContext.getProperty(OUTPUT_HEIGHT).asInteger(),
+                interpolation, aContext.getProperty(GRAYSCALE).asBoolean());
+        return transform.isIdentity() ? null : transform;
+    }
+
+    /**
+     * Creates the frame filters of a capture source.
+     *
+     * @param aContext process context
+     * @return frame filters, in the order they are applied
+     */
+    private List<FrameFilter> createFilters(final ProcessContext aContext) {
+
+        final List<FrameFilter> filters = new ArrayList<>();
+        final int changeThreshold = aContext.getProperty(CHANGE_THRESHOLD).asInteger();
+        if (changeThreshold > 0) {
+            filters.add(new ChangeDetector(changeThreshold));
+        }
+        final int duplicateWindow = aContext.getProperty(DUPLICATE_WINDOW).asInteger();
+        if (duplicateWindow > 0) {
+            filters.add(new PerceptualHashFilter(duplicateWindow,
+                    aContext.getProperty(DUPLICATE_DISTANCE).asInteger()));
+        }
+        final String cascade = aContext.getProperty(FACE_CASCADE).getValue();
+        if (cascade != null) {
+            filters.add(new FaceDetector(cascade,
+                    aContext.getProperty(FACE_DETECTION_WIDTH).asInteger(),
+                    NO_FACE_DROP.equals(aContext.getProperty(NO_FACE_HANDLING).getValue())));
+        }
+        return filters;
+    }
+
+    /**
+     * Stops grabbing new frames. Triggers still running may drain the frames
+     * already buffered.
+     */
+    @OnUnscheduled
+    public void haltCapture() {
+        haltChannels(channels);
+    }
+
+    /**
+     * Stops the capture workers of some channels and waits for all of them
+     * together, up to {@link #SHUTDOWN_TIMEOUT}.
+     *
+     * @param aChannels capture channels
+     */
+    private static void haltChannels(final List<CaptureChannel> aChannels) {
+
+        for (CaptureChannel channel : aChannels) {
+            channel.halt();
+        }
+        final long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(SHUTDOWN_TIMEOUT);
+        for (CaptureChannel channel : aChannels) {
+            channel.awaitHalted(deadline);
+        }
+    }
+
+    /**
+     * Closes the capture session and releases the buffered frames once no
+     * trigger is running any more.
+     */
+    @OnStopped
+    public void stopCapture() {
+
+        final List<CaptureChannel> current = channels;
+        channels = Collections.emptyList();
+        haltChannels(current);
+        for (CaptureChannel channel : current) {
+            channel.close(logger);
+        }
+        if (captureExecutor != null) {
+            captureExecutor.shutdownNow();
+            captureExecutor = null;
+        }
+        if (encoderExecutor != null) {
+            encoderExecutor.shutdown();
+            encoderExecutor = null;
+        }
+        stopArchiver();
+        CapturedFrame frame;
+        while ((frame = framePool.poll()) != null) {
+            frame.release();
+        }
+    }
+
+    /**
+     * Writes the pending interim results and stops the archive writer.
+     */
+    private void stopArchiver() {
+
+        FrameArchiver current = archiver;
+        archiver = null;
+        if (current != null) {
+            current.shutdown();
+        }
+    }
+
+    /**
+     * Returns the pipeline metrics since the processor was last scheduled.
+     *
+     * @return metrics
+     */
+    public CaptureMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the number of captured frames waiting to be transferred.
+     *
+     * @return queue depth
+     */
+    public int getBufferedFrameCount() {
+
+        int count = 0;
+        for (CaptureChannel channel : channels) {
+            count += channel.getBuffer().size();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of frames dropped because the frame buffer was full
+     * since the processor was last scheduled.
+     *
+     * @return dropped frame count
+     */
+    public long getDroppedFrameCount() {
+
+        long count = 0;
+        for (CaptureChannel channel : channels) {
+            count += channel.getBuffer().getDroppedCount();
+        }
+        return count;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -143,48 +1034,511 @@ public class VideoCapturer extends AbstractProcessor {
     public void onTrigger(final ProcessContext aContext, final ProcessSession aSession)
             throws ProcessException {
 
+        final List<CaptureChannel> current = channels;
+        final int channelCount = current.size();
+        if (channelCount == 0) {
+            aContext.yield();
+            return;
+        }
+        final int batchSize = aContext.getProperty(FRAMES_PER_BATCH).asInteger();
+        final int bundleSize = aContext.getProperty(FRAMES_PER_BUNDLE).asInteger();
+        final long maxLatency = TimeUnit.MILLISECONDS.toNanos(aContext.getProperty(MAX_BATCH_LATENCY).asLong());
+        final int first = Math.floorMod(nextChannel.getAndIncrement(), channelCount);
+        // bundled frames stay buffered until a full bundle is there or the oldest frame is overdue
+        final long overdue = System.nanoTime() - maxLatency;
+        final boolean[] due = new boolean[channelCount];
+        for (int i = 0; i < channelCount; i++) {
+            FrameRingBuffer buffer = current.get(i).getBuffer();
+            due[i] = bundleSize == 1 || buffer.size() >= bundleSize || buffer.isOldestCapturedBefore(overdue);
+        }
+        // frames with and without faces of every channel are bundled separately
+        final List<List<CapturedFrame>> pending = new ArrayList<>(2 * channelCount);
+        for (int i = 0; i < 2 * channelCount; i++) {
+            pending.add(new ArrayList<CapturedFrame>(bundleSize));
+        }
+        // full bundles, transferred in the order they were completed once the batch is polled
+        final List<List<CapturedFrame>> ready = new ArrayList<>();
+        final List<Integer> readyRoutes = new ArrayList<>();
+        final Map<CapturedFrame, Future<ByteArrayOutputStream>> encoded = new IdentityHashMap<>();
+        // a single frame gains nothing from the encoder threads but the hand-off,
+        // so the first frame is only handed over once a second one is polled
+        CapturedFrame firstFrame = null;
+        int firstRoute = 0;
+
         try {
 
-            grabber.start();
+            int count = 0;
+            int transferred = 0;
+            long deadline = 0;
+            while (transferred < batchSize) {
+                boolean polled = false;
+                for (int i = 0; i < channelCount && transferred < batchSize; i++) {
+                    int index = (first + i) % channelCount;
+                    if (!due[index]) {
+                        continue;
+                    }
+                    CapturedFrame frame = acquireFrame();
+                    if (!current.get(index).getBuffer().poll(frame)) {
+                        framePool.offer(frame);
+                        continue;
+                    }
+                    polled = true;
+                    if (count++ == 0) {
+                        deadline = frame.getCaptureTime() + maxLatency;
+                    }
+                    int route = frame.getFaceCount() == 0 ? 1 : 0;
+                    if (count == 1) {
+                        firstFrame = frame;
+                        firstRoute = route;
+                    } else {
+                        if (count == 2) {
+                            startEncoding(firstFrame, firstRoute, encoded);
+                        }
+                        startEncoding(frame, route, encoded);
+                    }
+                    List<CapturedFrame> frames = pending.get(2 * index + route);
+                    frames.add(frame);
+                    if (frames.size() == bundleSize) {
+                        ready.add(frames);
+                        readyRoutes.add(2 * index + route);
+                        pending.set(2 * index + route, new ArrayList<CapturedFrame>(bundleSize));
+                        transferred++;
+                    }
+                }
+                if (!polled) {
+                    long remaining = deadline - System.nanoTime();
+                    if (count == 0 || remaining <= 0) {
+                        break;
+                    }
+                    LockSupport.parkNanos(Math.min(remaining, BATCH_PARK_NANOS));
+                }
+            }
+
+            if (count == 0) {
+                // counters and metrics keep being reported while no frames arrive
+                if (reportCounters(aSession, 0)) {
+                    aSession.commit();
+                }
+                logMetrics(aContext);
+                aContext.yield();
+                return;
+            }
+            for (int i = 0; i < 2 * channelCount; i++) {
+                if (!pending.get(i).isEmpty()) {
+                    ready.add(pending.get(i));
+                    readyRoutes.add(i);
+                }
+            }
+            pending.clear();
+            for (int i = 0; i < ready.size(); i++) {
+                int key = readyRoutes.get(i);
+                transferFrames(aSession, current.get(key / 2), ready.get(i), bundleSize, key % 2, encoded);
+            }
+            reportCounters(aSession, count);
+            final long start = System.nanoTime();
+            aSession.commit();
+            metrics.record(CaptureMetrics.Stage.COMMIT, start);
+            logMetrics(aContext);
+
+        } finally {
+            awaitEncoding(encoded.values());
+            for (List<CapturedFrame> frames : ready) {
+                framePool.addAll(frames);
+            }
+            for (List<CapturedFrame> frames : pending) {
+                framePool.addAll(frames);
+            }
+        }
+    }
+
+    /**
+     * Starts encoding a polled frame on the encoder threads, if there are any
+     * and the whole frame is going to be transferred.
+     *
+     * @param aFrame polled frame
+     * @param aRoute 0 if the frame goes to "success", 1 if it goes to "no face"
+     * @param aEncoded frames being encoded, to which the frame is added
+     */
+    private void startEncoding(final CapturedFrame aFrame, final int aRoute,
+            final Map<CapturedFrame, Future<ByteArrayOutputStream>> aEncoded) {
+
+        final ExecutorService executor = encoderExecutor;
+        if (executor == null || aRoute == 0 && emitCrops && !emitFrames) {
+            return;
+        }
+        final ImageEncoder currentEncoder = encoder;
+        aEncoded.put(aFrame, executor.submit(new Callable<ByteArrayOutputStream>() {
+
+            @Override
+            public ByteArrayOutputStream call() throws IOException {
+                return encodeFrame(currentEncoder, aFrame);
+            }
+        }));
+    }
+
+    /**
+     * Waits until frames being encoded are done, so their holders can be reused.
+     *
+     * @param aEncoded encoding results
+     */
+    private static void awaitEncoding(final Collection<Future<ByteArrayOutputStream>> aEncoded) {
+
+        boolean interrupted = false;
+        for (Future<ByteArrayOutputStream> result : aEncoded) {
+            while (!result.isDone()) {
+                try {
+                    result.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException | CancellationException e) {
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
-            Frame frame = grabber.grab();
-            byte[] result = toByteArray(frame);
+    /**
+     * Transfers frames, either each in its own flow file or all in a single
+     * frame bundle, and returns their holders to the pool. The capture and
+     * geometry attributes of a bundle are those of its first frame. If face
+     * crops are emitted, the faces of frames routed to "success" are
+     * transferred to "faces" as children of the frame flow file, or instead
+     * of it if only crops are emitted.
+     *
+     * @param aSession process session
+     * @param aChannel channel the frames were captured by
+     * @param aFrames captured frames
+     * @param aBundleSize number of frames per bundle, 1 if frames are not bundled
+     * @param aRoute 0 to transfer the frames to "success", 1 to "no face"
+     * @param aEncoded frames being encoded on the encoder threads
+     */
+    private void transferFrames(final ProcessSession aSession, final CaptureChannel aChannel,
+            final List<CapturedFrame> aFrames, final int aBundleSize, final int aRoute,
+            final Map<CapturedFrame, Future<ByteArrayOutputStream>> aEncoded) {
 
-            if (aContext.getProperty(SAVE_IMAGES).asBoolean()) {
-                opencv_imgcodecs.cvSaveImage(System.currentTimeMillis() + "-captured.png",
-                        converter.convert(frame));
+        final boolean crops = aRoute == 0 && emitCrops;
+        FlowFile flowFile = null;
+        if (!crops || emitFrames) {
+            flowFile = writeFrames(aSession, aChannel, aFrames, aBundleSize, aEncoded);
+        }
+        if (crops) {
+            for (CapturedFrame frame : aFrames) {
+                transferFaces(aSession, aChannel, frame, flowFile);
             }
+        }
+        if (flowFile != null) {
+            aSession.transfer(flowFile, aRoute == 0 ? REL_SUCCESS : REL_NO_FACE);
+        }
+
+        framePool.addAll(aFrames);
+        aFrames.clear();
+    }
 
-            //transfer the image
-            FlowFile flowFile = aSession.create();
+    /**
+     * Writes frames into a new flow file, either a single frame or a frame bundle.
+     *
+     * @param aSession process session
+     * @param aChannel channel the frames were captured by
+     * @param aFrames captured frames
+     * @param aBundleSize number of frames per bundle, 1 if frames are not bundled
+     * @param aEncoded frames being encoded on the encoder threads
+     * @return flow file, not transferred yet
+     */
+    private FlowFile writeFrames(final ProcessSession aSession, final CaptureChannel aChannel,
+            final List<CapturedFrame> aFrames, final int aBundleSize,
+            final Map<CapturedFrame, Future<ByteArrayOutputStream>> aEncoded) {
+
+        final FrameArchiver currentArchiver = archiver;
+        final ImageEncoder currentEncoder = encoder;
+        final int[] unarchived = new int[1];
+
+        FlowFile flowFile = aSession.create();
+        try {
             flowFile = aSession.write(flowFile, new OutputStreamCallback() {
 
                 @Override
                 public void process(final OutputStream aStream) throws IOException {
 
-                    aStream.write(result);
+                    if (aBundleSize == 1) {
+                        CapturedFrame frame = aFrames.get(0);
+                        unarchived[0] += writeFrame(currentEncoder, frame, aEncoded.get(frame), aStream,
+                                currentArchiver);
+                        return;
+                    }
+                    FrameBundleWriter writer = new FrameBundleWriter(aStream, aBundleSize);
+                    for (CapturedFrame frame : aFrames) {
+                        unarchived[0] += writeFrame(currentEncoder, frame, aEncoded.get(frame), writer.getStream(),
+                                currentArchiver);
+                        writer.endFrame(frame.getTimestamp(), frame.getFrameNumber());
+                    }
+                    writer.finish();
                 }
             });
-            aSession.transfer(flowFile, REL_SUCCESS);
-            aSession.commit();
+        } catch (ProcessException e) {
+            metrics.framesFailed(aFrames.size());
+            throw e;
+        }
+        if (unarchived[0] > 0) {
+            aSession.adjustCounter(UNARCHIVED_FRAMES_COUNTER, unarchived[0], false);
+        }
+        flowFile = aSession.putAllAttributes(flowFile,
+                getFrameAttributes(aChannel, aFrames.get(0), currentEncoder, aFrames.get(0).getImage()));
+        if (aBundleSize == 1) {
+            flowFile = aSession.putAttribute(flowFile, CoreAttributes.MIME_TYPE.key(), currentEncoder.getMimeType());
+        } else {
+            flowFile = aSession.putAttribute(flowFile, CoreAttributes.MIME_TYPE.key(), FrameBundleWriter.MIME_TYPE);
+            flowFile = aSession.putAttribute(flowFile, BUNDLE_MIME_TYPE_ATTRIBUTE, currentEncoder.getMimeType());
+            flowFile = aSession.putAttribute(flowFile, BUNDLE_COUNT_ATTRIBUTE, String.valueOf(aFrames.size()));
+        }
+        return flowFile;
+    }
 
-            Thread.currentThread();
-            Thread.sleep(Integer.parseInt(aContext.getProperty(FRAME_INTERVAL).getValue()));
+    /**
+     * Crops the detected faces out of a frame, optionally resizes them, and
+     * transfers each in its own flow file to "faces".
+     *
+     * @param aSession process session
+     * @param aChannel channel the frame was captured by
+     * @param aFrame captured frame
+     * @param aParent flow file of the frame, null if frames are not transferred
+     */
+    private void transferFaces(final ProcessSession aSession, final CaptureChannel aChannel,
+            final CapturedFrame aFrame, final FlowFile aParent) {
 
-            grabber.stop();
+        final ImageEncoder currentEncoder = encoder;
+        final int size = cropSize;
+        final int[] faces = aFrame.getFaces();
+        final Mat resized = new Mat();
+        try {
+            for (int i = 0; i < aFrame.getFaceCount(); i++) {
+                final Rect box = new Rect(faces[4 * i], faces[4 * i + 1], faces[4 * i + 2], faces[4 * i + 3]);
+                final Mat region = new Mat(aFrame.getImage(), box);
+                final Mat crop;
+                if (size > 0) {
+                    Size dsize = new Size(size, size);
+                    opencv_imgproc.resize(region, resized, dsize, 0, 0, opencv_imgproc.INTER_AREA);
+                    dsize.deallocate();
+                    crop = resized;
+                } else {
+                    crop = region;
+                }
 
-        } catch (Exception e) {
-            logger.error("Something went wrong with the video capture!", e);
+                try {
+                    FlowFile flowFile = aParent == null ? aSession.create() : aSession.create(aParent);
+                    flowFile = aSession.write(flowFile, new OutputStreamCallback() {
+
+                        @Override
+                        public void process(final OutputStream aStream) throws IOException {
+
+                            final long start = System.nanoTime();
+                            currentEncoder.encode(crop, aStream);
+                            metrics.record(CaptureMetrics.Stage.ENCODE, start);
+                        }
+                    });
+                    final Map<String, String> attributes = getFrameAttributes(aChannel, aFrame, currentEncoder, crop);
+                    attributes.put(CoreAttributes.MIME_TYPE.key(), currentEncoder.getMimeType());
+                    attributes.put(FACE_INDEX_ATTRIBUTE, String.valueOf(i));
+                    attributes.put(FACE_X_ATTRIBUTE, String.valueOf(box.x()));
+                    attributes.put(FACE_Y_ATTRIBUTE, String.valueOf(box.y()));
+                    attributes.put(FACE_WIDTH_ATTRIBUTE, String.valueOf(box.width()));
+                    attributes.put(FACE_HEIGHT_ATTRIBUTE, String.valueOf(box.height()));
+                    if (aParent != null) {
+                        attributes.put(FACE_PARENT_ATTRIBUTE, aParent.getAttribute(CoreAttributes.UUID.key()));
+                    }
+                    aSession.transfer(aSession.putAllAttributes(flowFile, attributes), REL_FACES);
+                } finally {
+                    region.deallocate();
+                    box.deallocate();
+                }
+            }
+        } finally {
+            resized.release();
+        }
+    }
+
+    /**
+     * Returns the capture and geometry attributes of a frame.
+     *
+     * @param aChannel channel the frame was captured by
+     * @param aFrame captured frame
+     * @param aEncoder image encoder
+     * @param aImage transferred image, the frame image or a part of it
+     * @return modifiable attributes
+     */
+    private Map<String, String> getFrameAttributes(final CaptureChannel aChannel, final CapturedFrame aFrame,
+            final ImageEncoder aEncoder, final Mat aImage) {
+
+        final Map<String, String> attributes = new HashMap<>(aEncoder.getAttributes(aImage));
+        attributes.put(SOURCE_ID_ATTRIBUTE, aChannel.getId());
+        attributes.put(TIMESTAMP_ATTRIBUTE, String.valueOf(aFrame.getTimestamp()));
+        attributes.put(CAPTURE_TIME_ATTRIBUTE, String.valueOf(aFrame.getWallClockTime()));
+        attributes.put(FRAME_NUMBER_ATTRIBUTE, String.valueOf(aFrame.getFrameNumber()));
+        attributes.put(KEYFRAME_ATTRIBUTE, String.valueOf(aFrame.isKeyFrame()));
+        if (aFrame.getFaceCount() >= 0) {
+            attributes.put(FACE_COUNT_ATTRIBUTE, String.valueOf(aFrame.getFaceCount()));
+        }
+        if (aFrame.hasPerceptualHash()) {
+            attributes.put(PERCEPTUAL_HASH_ATTRIBUTE, String.format("%016x", aFrame.getPerceptualHash()));
+        }
+        attributes.put(WIDTH_ATTRIBUTE, String.valueOf(aImage.cols()));
+        attributes.put(HEIGHT_ATTRIBUTE, String.valueOf(aImage.rows()));
+        attributes.put(CHANNELS_ATTRIBUTE, String.valueOf(aImage.channels()));
+        attributes.put(ENCODING_ATTRIBUTE, format.getValue());
+        return attributes;
+    }
+
+    /**
+     * Writes an encoded frame into a stream, handing the encoded bytes to the
+     * archive without copying them if interim results are saved. Frames not encoded
+     * on the encoder threads are encoded by the calling thread.
+     *
+     * @param aEncoder image encoder
+     * @param aFrame captured frame
+     * @param aEncoded result of encoding the frame on the encoder threads, null if it is not encoded there
+     * @param aStream output stream
+     * @param aArchiver archive writer, null if interim results are not saved
+     * @return 1 if the frame should have been archived but the archive queue was full, 0 otherwise
+     * @throws IOException if the frame cannot be encoded or written
+     */
+    private int writeFrame(final ImageEncoder aEncoder, final CapturedFrame aFrame,
+            final Future<ByteArrayOutputStream> aEncoded, final OutputStream aStream,
+            final FrameArchiver aArchiver) throws IOException {
+
+        if (aEncoded == null && aArchiver == null) {
+            final long start = System.nanoTime();
+            aEncoder.encode(aFrame.getImage(), aStream);
+            metrics.record(CaptureMetrics.Stage.ENCODE, start);
+            return 0;
+        }
+        final ByteArrayOutputStream content = aEncoded == null ? encodeFrame(aEncoder, aFrame) : getEncoded(aEncoded);
+        content.writeTo(aStream);
+        if (aArchiver == null) {
+            return 0;
+        }
+        // the buffer is handed over as is, since nothing writes into it any more
+        return aArchiver.submit(content.getUnderlyingBuffer(), content.size(), aEncoder.getExtension(),
+                aFrame.getWallClockTime()) ? 0 : 1;
+    }
+
+    /**
+     * Encodes a frame into memory.
+     *
+     * @param aEncoder image encoder
+     * @param aFrame captured frame
+     * @return encoded frame
+     * @throws IOException if the frame cannot be encoded
+     */
+    private ByteArrayOutputStream encodeFrame(final ImageEncoder aEncoder, final CapturedFrame aFrame)
+            throws IOException {
+
+        final long start = System.nanoTime();
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        aEncoder.encode(aFrame.getImage(), content);
+        metrics.record(CaptureMetrics.Stage.ENCODE, start);
+        return content;
+    }
+
+    /**
+     * Waits for a frame encoded on the encoder threads.
+     *
+     * @param aEncoded encoding result
+     * @return encoded frame
+     * @throws IOException if the frame could not be encoded or waiting was interrupted
+     */
+    private static ByteArrayOutputStream getEncoded(final Future<ByteArrayOutputStream> aEncoded)
+            throws IOException {
+
+        try {
+            return aEncoded.get();
         } catch (InterruptedException e) {
-            logger.error("Something went wrong with the threads!", e);
-        } catch (IOException e) {
-            logger.error("Something went wrong with saving the file!", e);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for an encoded frame");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException("Something went wrong with encoding the frame!", e.getCause());
+        }
+    }
+
+    /**
+     * Takes a frame holder from the pool, or creates one if the pool is empty.
+     *
+     * @return frame holder
+     */
+    private CapturedFrame acquireFrame() {
+
+        CapturedFrame frame = framePool.poll();
+        return frame == null ? new CapturedFrame() : frame;
+    }
+
+    /**
+     * Adds the frames grabbed, skipped, dropped, failed and transferred since
+     * the last report to the processor counters, and the transferred ones to
+     * the metrics.
+     *
+     * @param aSession process session
+     * @param aEmitted number of frames transferred by this session
+     * @return true if any counter has been adjusted
+     */
+    private boolean reportCounters(final ProcessSession aSession, final int aEmitted) {
+
+        final CaptureMetrics current = metrics;
+        boolean adjusted = false;
+        if (aEmitted > 0) {
+            current.framesEmitted(aEmitted);
+            aSession.adjustCounter(EMITTED_FRAMES_COUNTER, aEmitted, false);
+            adjusted = true;
         }
+        adjusted |= reportDelta(aSession, DROPPED_FRAMES_COUNTER, reportedDrops, current.getFramesDropped()) > 0;
+        adjusted |= reportDelta(aSession, GRABBED_FRAMES_COUNTER, reportedGrabs, current.getFramesGrabbed()) > 0;
+        adjusted |= reportDelta(aSession, SKIPPED_FRAMES_COUNTER, reportedSkips, current.getFramesSkipped()) > 0;
+        adjusted |= reportDelta(aSession, FAILED_FRAMES_COUNTER, reportedFailures, current.getFramesFailed()) > 0;
+        return adjusted;
+    }
 
+    /**
+     * Adds the growth of a total since its last report to a processor counter.
+     * Concurrent triggers never report the same growth twice.
+     *
+     * @param aSession process session
+     * @param aCounter counter name
+     * @param aReported total already added to the counter
+     * @param aTotal current total
+     * @return growth added to the counter by this call
+     */
+    private static long reportDelta(final ProcessSession aSession, final String aCounter,
+            final AtomicLong aReported, final long aTotal) {
+
+        long reported = aReported.get();
+        if (aTotal > reported && aReported.compareAndSet(reported, aTotal)) {
+            aSession.adjustCounter(aCounter, aTotal - reported, false);
+            return aTotal - reported;
+        }
+        return 0;
     }
 
     /**
-     * Converts an IplImage into a byte array.
+     * Logs the metrics if the metrics log interval has elapsed.
+     *
+     * @param aContext process context
+     */
+    private void logMetrics(final ProcessContext aContext) {
+
+        final long interval = TimeUnit.MILLISECONDS.toNanos(aContext.getProperty(METRICS_LOG_INTERVAL).asLong());
+        final long next = nextMetricsLog.get();
+        final long now = System.nanoTime();
+        if (interval > 0 && now - next >= 0 && nextMetricsLog.compareAndSet(next, now + interval)) {
+            logger.info("Capture metrics: {}", new Object[] {metrics});
+        }
+    }
+
+    /**
+     * Converts an IplImage into a PNG byte array. The native pixels are
+     * encoded in place, without copying them into a Java image. Thread-safe.
      *
      * @param aImage input image
      * @return byte array
@@ -192,18 +1546,12 @@ public class VideoCapturer extends AbstractProcessor {
      */
     public static byte[] toByteArray(final IplImage aImage) throws IOException {
 
-        BufferedImage result = flatConverter.convert(converter.convert(aImage));
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(result, "png", baos);
-        baos.flush();
-        byte[] byteImage = baos.toByteArray();
-        baos.close();
-
-        return byteImage;
+        return toByteArray(new OpenCVFrameConverter.ToIplImage().convert(aImage));
     }
 
     /**
-     * Converts a frame into a byte array.
+     * Converts a frame into a PNG byte array. The native pixels are
+     * encoded in place, without copying them into a Java image. Thread-safe.
      *
      * @param aFrame input frame
      * @return byte array
@@ -211,13 +1559,10 @@ public class VideoCapturer extends AbstractProcessor {
      */
     public static byte[] toByteArray(final Frame aFrame) throws IOException {
 
-        BufferedImage result = flatConverter.convert(aFrame);
         ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(result, "png", baos);
-        baos.flush();
-        byte[] byteImage = baos.toByteArray();
+        PNG_ENCODER.encode(new OpenCVFrameConverter.ToMat().convert(aFrame), baos);
         baos.close();
 
-        return byteImage;
+        return baos.toByteArray();
     }
 }
@@ -0,0 +1,144 @@
+package nifi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.bytedeco.javacv.FFmpegFrameGrabber;
+import org.bytedeco.javacv.FrameGrabber;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests which grabber {@link CaptureSources} creates for a capture source.
+ */
+public class CaptureSourcesTest {
+
+    /** Temporary directory. */
+    private Path directory;
+
+    /**
+     * Creates the temporary directory.
+     *
+     * @throws IOException if the directory cannot be created
+     */
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("capture-sources");
+    }
+
+    /**
+     * Deletes the temporary directory.
+     *
+     * @throws IOException if the directory cannot be deleted
+     */
+    @After
+    public void tearDown() throws IOException {
+
+        for (File file : directory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Tests that a device index opens the default camera grabber.
+     *
+     * @throws FrameGrabber.Exception if the grabber cannot be released
+     */
+    @Test
+    public void testDeviceIndex() throws FrameGrabber.Exception {
+
+        final FrameGrabber grabber;
+        try {
+            grabber = CaptureSources.createGrabber(" 0 ");
+        } catch (FrameGrabber.Exception e) {
+            // no camera grabber can be loaded on this machine
+            assertFalse(e.getMessage(), e.getMessage().startsWith("No such capture source"));
+            return;
+        }
+        assertEquals(FrameGrabber.getDefault(), grabber.getClass());
+        grabber.release();
+    }
+
+    /**
+     * Tests that stream URLs are opened with FFmpeg.
+     *
+     * @throws FrameGrabber.Exception if no grabber can be created
+     */
+    @Test
+    public void testStreamUrl() throws FrameGrabber.Exception {
+
+        assertTrue(CaptureSources.createGrabber("rtsp://camera/stream") instanceof FFmpegFrameGrabber);
+        assertTrue(CaptureSources.createGrabber("http://camera/video.mjpg") instanceof FFmpegFrameGrabber);
+    }
+
+    /**
+     * Tests that synthetic sources are generated.
+     *
+     * @throws FrameGrabber.Exception if no grabber can be created
+     */
+    @Test
+    public void testSyntheticSource() throws FrameGrabber.Exception {
+
+        final FrameGrabber grabber = CaptureSources.createGrabber("synthetic://32x24?fps=0");
+        assertTrue(grabber instanceof SyntheticFrameGrabber);
+        assertEquals(32, grabber.getImageWidth());
+        assertEquals(24, grabber.getImageHeight());
+    }
+
+    /**
+     * Tests that directories are replayed image by image.
+     *
+     * @throws FrameGrabber.Exception if no grabber can be created
+     */
+    @Test
+    public void testImageDirectory() throws FrameGrabber.Exception {
+        assertTrue(CaptureSources.createGrabber(directory.toString()) instanceof ImageDirectoryFrameGrabber);
+    }
+
+    /**
+     * Tests that files are opened with FFmpeg.
+     *
+     * @throws Exception if the file or the grabber cannot be created
+     */
+    @Test
+    public void testVideoFile() throws Exception {
+
+        final Path file = Files.createFile(directory.resolve("video.mp4"));
+        assertTrue(CaptureSources.createGrabber(file.toString()) instanceof FFmpegFrameGrabber);
+    }
+
+    /**
+     * Tests that a missing path is rejected.
+     *
+     * @throws FrameGrabber.Exception always
+     */
+    @Test(expected = FrameGrabber.Exception.class)
+    public void testMissingPath() throws FrameGrabber.Exception {
+        CaptureSources.createGrabber(directory.resolve("missing.mp4").toString());
+    }
+
+    /**
+     * Tests that only files and directories are taken for recorded sources.
+     *
+     * @throws IOException if the file cannot be created
+     */
+    @Test
+    public void testRecorded() throws IOException {
+
+        final Path file = Files.createFile(directory.resolve("video.mp4"));
+        assertTrue(CaptureSources.isRecorded(file.toString()));
+        assertTrue(CaptureSources.isRecorded(" " + directory + " "));
+        assertFalse(CaptureSources.isRecorded(directory.resolve("missing.mp4").toString()));
+        assertFalse(CaptureSources.isRecorded("0"));
+        assertFalse(CaptureSources.isRecorded("rtsp://camera/stream"));
+        assertFalse(CaptureSources.isRecorded("synthetic://"));
+    }
+}
@@ -0,0 +1,108 @@
+package nifi;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.bytedeco.javacpp.opencv_core;
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacpp.opencv_core.Scalar;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests skipping unchanged frames with {@link ChangeDetector}.
+ */
+public class ChangeDetectorTest {
+
+    /** Tested filter, accepting a mean absolute difference of 10 intensity levels. */
+    private ChangeDetector detector;
+
+    /**
+     * Creates the filter.
+     */
+    @Before
+    public void setUp() {
+        detector = new ChangeDetector(10);
+    }
+
+    /**
+     * Releases the filter.
+     */
+    @After
+    public void tearDown() {
+        detector.release();
+    }
+
+    /**
+     * Checks whether the filter accepts a uniform frame, and buffers it if so.
+     *
+     * @param aLevel intensity of all pixels
+     * @return true if the frame has been accepted
+     */
+    private boolean offer(final int aLevel) {
+
+        final Mat image = new Mat(120, 160, opencv_core.CV_8UC3, new Scalar(aLevel, aLevel, aLevel, 0));
+        try {
+            if (!detector.accept(image)) {
+                return false;
+            }
+            detector.buffered(new CapturedFrame());
+            return true;
+        } finally {
+            image.release();
+        }
+    }
+
+    /**
+     * Tests that the first frame is accepted and identical ones are skipped.
+     */
+    @Test
+    public void testIdenticalFrames() {
+
+        assertTrue(offer(100));
+        assertFalse(offer(100));
+        assertFalse(offer(100));
+    }
+
+    /**
+     * Tests that frames are accepted once they differ by the threshold.
+     */
+    @Test
+    public void testThreshold() {
+
+        assertTrue(offer(100));
+        assertFalse(offer(109));
+        assertTrue(offer(110));
+        assertTrue(offer(90));
+    }
+
+    /**
+     * Tests that frames are compared with the last buffered one, so that a
+     * slow drift is still accepted once it adds up to the threshold.
+     */
+    @Test
+    public void testDrift() {
+
+        assertTrue(offer(100));
+        assertFalse(offer(105));
+        assertTrue(offer(110));
+        assertFalse(offer(115));
+    }
+
+    /**
+     * Tests that grayscale frames are compared as well.
+     */
+    @Test
+    public void testGrayFrames() {
+
+        final Mat image = new Mat(120, 160, opencv_core.CV_8UC1, new Scalar(100, 0, 0, 0));
+        try {
+            assertTrue(detector.accept(image));
+            detector.buffered(new CapturedFrame());
+            assertFalse(detector.accept(image));
+        } finally {
+            image.release();
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package nifi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.net.URISyntaxException;
+
+import org.bytedeco.javacpp.opencv_core;
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacpp.opencv_core.Point;
+import org.bytedeco.javacpp.opencv_core.Scalar;
+import org.bytedeco.javacpp.opencv_imgproc;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests detecting and routing faces with {@link FaceDetector}. No face
+ * cascade is shipped with the OpenCV binaries, so a cascade detecting a dark
+ * to bright vertical edge stands in for one, and frames show such an edge.
+ */
+public class FaceDetectorTest {
+
+    /** Frame width, in pixels. */
+    private static final int WIDTH = 320;
+
+    /** Frame height, in pixels. */
+    private static final int HEIGHT = 240;
+
+    /** Column of the edge, in pixels. */
+    private static final int EDGE = 160;
+
+    /** Path of the edge cascade. */
+    private String cascade;
+
+    /** Frame showing an edge. */
+    private Mat face;
+
+    /** Uniform frame. */
+    private Mat empty;
+
+    /**
+     * Creates the frames.
+     *
+     * @throws URISyntaxException if the cascade cannot be located
+     */
+    @Before
+    public void setUp() throws URISyntaxException {
+
+        cascade = new File(FaceDetectorTest.class.getResource("edge-cascade.xml").toURI()).getPath();
+        empty = new Mat(HEIGHT, WIDTH, opencv_core.CV_8UC3, new Scalar(128, 128, 128, 0));
+        face = new Mat(HEIGHT, WIDTH, opencv_core.CV_8UC3, new Scalar(128, 128, 128, 0));
+        opencv_imgproc.rectangle(face, new Point(EDGE - 60, 60), new Point(EDGE - 1, 179),
+                new Scalar(0, 0, 0, 0), -1, 8, 0);
+        opencv_imgproc.rectangle(face, new Point(EDGE, 60), new Point(EDGE + 59, 179),
+                new Scalar(255, 255, 255, 0), -1, 8, 0);
+    }
+
+    /**
+     * Releases the frames.
+     */
+    @After
+    public void tearDown() {
+
+        face.release();
+        empty.release();
+    }
+
+    /**
+     * Detects faces in a frame and checks that they are attached to the
+     * buffered frame, in full resolution coordinates.
+     *
+     * @param aDetectionWidth maximum width of the image faces are detected on
+     */
+    private void assertFaceDetected(final int aDetectionWidth) {
+
+        final FaceDetector detector = new FaceDetector(cascade, aDetectionWidth, true);
+        try {
+            assertTrue(detector.accept(face));
+            final CapturedFrame frame = new CapturedFrame();
+            detector.buffered(frame);
+            assertTrue(frame.getFaceCount() > 0);
+            final int[] faces = frame.getFaces();
+            for (int i = 0; i < frame.getFaceCount(); i++) {
+                int x = faces[4 * i];
+                int y = faces[4 * i + 1];
+                assertTrue(x >= 0 && x < EDGE && x + faces[4 * i + 2] > EDGE && x + faces[4 * i + 2] <= WIDTH);
+                assertTrue(y >= 0 && y + faces[4 * i + 3] <= HEIGHT);
+            }
+        } finally {
+            detector.release();
+        }
+    }
+
+    /**
+     * Tests that faces are detected on the full frame.
+     */
+    @Test
+    public void testFaceDetected() {
+        assertFaceDetected(WIDTH);
+    }
+
+    /**
+     * Tests that faces detected on a downscaled frame are scaled back.
+     */
+    @Test
+    public void testDownscaledDetection() {
+        assertFaceDetected(WIDTH / 2);
+    }
+
+    /**
+     * Tests that frames without faces are rejected if asked to.
+     */
+    @Test
+    public void testNoFaceRejected() {
+
+        final FaceDetector detector = new FaceDetector(cascade, WIDTH, true);
+        try {
+            assertFalse(detector.accept(empty));
+        } finally {
+            detector.release();
+        }
+    }
+
+    /**
+     * Tests that frames without faces are buffered for routing otherwise,
+     * without the faces of a previous frame.
+     */
+    @Test
+    public void testNoFaceRouted() {
+
+        final FaceDetector detector = new FaceDetector(cascade, WIDTH, false);
+        try {
+            final CapturedFrame frame = new CapturedFrame();
+            assertTrue(detector.accept(face));
+            detector.buffered(frame);
+            assertTrue(frame.getFaceCount() > 0);
+
+            assertTrue(detector.accept(empty));
+            detector.buffered(frame);
+            assertEquals(0, frame.getFaceCount());
+        } finally {
+            detector.release();
+        }
+    }
+
+    /**
+     * Tests that a cascade which cannot be loaded is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMissingCascade() {
+        new FaceDetector(new File(cascade).getParent() + "/missing.xml", WIDTH, true);
+    }
+}
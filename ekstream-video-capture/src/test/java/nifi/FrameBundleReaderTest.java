@@ -0,0 +1,151 @@
+package nifi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/**
+ * Tests writing frame bundles with {@link FrameBundleWriter} and reading them
+ * back with {@link FrameBundleReader}.
+ */
+public class FrameBundleReaderTest {
+
+    /** Encoded frames of the test bundle. */
+    private static final byte[][] FRAMES = {
+        "first frame".getBytes(StandardCharsets.US_ASCII),
+        new byte[0],
+        "third and last frame".getBytes(StandardCharsets.US_ASCII),
+    };
+
+    /**
+     * Writes the test frames into a bundle.
+     *
+     * @param aCapacity bundle capacity
+     * @return bundle content
+     * @throws IOException if the bundle cannot be written
+     */
+    private static byte[] writeBundle(final int aCapacity) throws IOException {
+
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        final FrameBundleWriter writer = new FrameBundleWriter(content, aCapacity);
+        for (int i = 0; i < FRAMES.length; i++) {
+            writer.getStream().write(FRAMES[i]);
+            writer.endFrame(1000L * i, 10 + i);
+        }
+        writer.finish();
+        return content.toByteArray();
+    }
+
+    /**
+     * Tests that frames, timestamps and frame numbers survive a round trip.
+     *
+     * @throws IOException if the bundle cannot be written or read
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+
+        final byte[] content = writeBundle(5);
+        assertTrue(FrameBundleReader.isBundle(content));
+
+        final FrameBundleReader reader = new FrameBundleReader(content);
+        assertEquals(FRAMES.length, reader.size());
+        for (int i = 0; i < FRAMES.length; i++) {
+            assertArrayEquals(FRAMES[i], reader.getFrame(i));
+            assertEquals(1000L * i, reader.getTimestamp(i));
+            assertEquals(10 + i, reader.getFrameNumber(i));
+
+            final InputStream stream = reader.openFrame(i);
+            final byte[] read = new byte[FRAMES[i].length];
+            assertEquals(read.length, Math.max(0, stream.read(read)));
+            assertArrayEquals(FRAMES[i], read);
+            assertEquals(-1, stream.read());
+        }
+    }
+
+    /**
+     * Tests that an empty bundle can be read.
+     *
+     * @throws IOException if the bundle cannot be written or read
+     */
+    @Test
+    public void testEmptyBundle() throws IOException {
+
+        final ByteArrayOutputStream content = new ByteArrayOutputStream();
+        new FrameBundleWriter(content, 1).finish();
+        assertEquals(0, new FrameBundleReader(content.toByteArray()).size());
+    }
+
+    /**
+     * Tests that a writer refuses more frames than its capacity.
+     *
+     * @throws IOException if the bundle cannot be written
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testWriterCapacity() throws IOException {
+        writeBundle(2);
+    }
+
+    /**
+     * Tests that content without a footer is not taken for a bundle.
+     *
+     * @throws IOException always
+     */
+    @Test(expected = IOException.class)
+    public void testNotABundle() throws IOException {
+
+        final byte[] content = FRAMES[0];
+        assertFalse(FrameBundleReader.isBundle(content));
+        new FrameBundleReader(content);
+    }
+
+    /**
+     * Tests that a frame count exceeding the content is rejected.
+     *
+     * @throws IOException always
+     */
+    @Test(expected = IOException.class)
+    public void testCorruptedCount() throws IOException {
+
+        final byte[] content = writeBundle(5);
+        ByteBuffer.wrap(content).putInt(content.length - FrameBundleWriter.FOOTER_SIZE, 1000);
+        new FrameBundleReader(content);
+    }
+
+    /**
+     * Tests that a frame reaching into the index is rejected.
+     *
+     * @throws IOException always
+     */
+    @Test(expected = IOException.class)
+    public void testCorruptedLength() throws IOException {
+
+        final byte[] content = writeBundle(5);
+        final int entry = content.length - FrameBundleWriter.FOOTER_SIZE - FrameBundleWriter.ENTRY_SIZE;
+        ByteBuffer.wrap(content).putLong(entry + Long.BYTES, FRAMES[2].length + 1);
+        new FrameBundleReader(content);
+    }
+
+    /**
+     * Tests that a negative frame offset is rejected.
+     *
+     * @throws IOException always
+     */
+    @Test(expected = IOException.class)
+    public void testCorruptedOffset() throws IOException {
+
+        final byte[] content = writeBundle(5);
+        final int entry = content.length - FrameBundleWriter.FOOTER_SIZE
+                - FRAMES.length * FrameBundleWriter.ENTRY_SIZE;
+        ByteBuffer.wrap(content).putLong(entry, -1);
+        new FrameBundleReader(content);
+    }
+}
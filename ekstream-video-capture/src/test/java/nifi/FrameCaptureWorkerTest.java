@@ -0,0 +1,209 @@
+package nifi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.nifi.util.MockComponentLog;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.junit.Test;
+
+/**
+ * Tests how a {@link FrameCaptureWorker} copes with failures and the end of
+ * the video stream.
+ */
+public class FrameCaptureWorkerTest {
+
+    /** Time to wait for the worker to buffer frames, in ms. */
+    private static final long FILL_TIMEOUT = TimeUnit.SECONDS.toMillis(10);
+
+    /**
+     * A synthetic grabber which fails once, is interrupted once, or ends,
+     * at given frame numbers.
+     */
+    private static final class FlakyFrameGrabber extends SyntheticFrameGrabber {
+
+        /** Frame number at which the grabber fails once, -1 for never. */
+        private final int failAt;
+
+        /** Frame number at which the stream is interrupted once, -1 for never. */
+        private final int interruptAt;
+
+        /** Frame number at which the stream ends. */
+        private final int endAt;
+
+        /** Number of times the grabber has been started. */
+        private final AtomicInteger starts = new AtomicInteger();
+
+        /** Whether the grabber has failed. */
+        private boolean failed;
+
+        /** Whether the stream has been interrupted. */
+        private boolean interrupted;
+
+        /**
+         * Constructor.
+         *
+         * @param aFailAt frame number at which the grabber fails once, -1 for never
+         * @param aInterruptAt frame number at which the stream is interrupted once, -1 for never
+         * @param aEndAt frame number at which the stream ends
+         */
+        FlakyFrameGrabber(final int aFailAt, final int aInterruptAt, final int aEndAt) {
+
+            super(16, 16, 0, false, 0);
+            failAt = aFailAt;
+            interruptAt = aInterruptAt;
+            endAt = aEndAt;
+        }
+
+        @Override
+        public void start() throws Exception {
+
+            starts.incrementAndGet();
+            super.start();
+        }
+
+        @Override
+        public Frame grab() throws Exception {
+
+            if (getFrameNumber() == failAt && !failed) {
+                failed = true;
+                throw new IllegalStateException("Decoder crashed");
+            }
+            if (getFrameNumber() == interruptAt && !interrupted) {
+                interrupted = true;
+                return null;
+            }
+            if (getFrameNumber() >= endAt) {
+                return null;
+            }
+            return super.grab();
+        }
+    }
+
+    /**
+     * Creates a worker capturing all frames of a grabber.
+     *
+     * @param aGrabber started grabber
+     * @param aRecorded whether the source is recorded
+     * @param aBuffer frame buffer
+     * @param aMetrics pipeline metrics
+     * @param aLogger logger
+     * @return worker
+     */
+    private static FrameCaptureWorker newWorker(final FrameGrabber aGrabber, final boolean aRecorded,
+            final FrameRingBuffer aBuffer, final CaptureMetrics aMetrics, final MockComponentLog aLogger) {
+
+        return new FrameCaptureWorker(aGrabber, aRecorded, SamplingMode.ALL_FRAMES, new FramePacer(0), null,
+                Collections.<FrameFilter>emptyList(), aBuffer, aMetrics, aLogger);
+    }
+
+    /**
+     * Runs a worker until it has buffered a number of frames, and shuts it down.
+     *
+     * @param aWorker worker
+     * @param aBuffer frame buffer of the worker
+     * @param aCount number of frames
+     * @throws InterruptedException if the test is interrupted
+     */
+    private static void capture(final FrameCaptureWorker aWorker, final FrameRingBuffer aBuffer,
+            final int aCount) throws InterruptedException {
+
+        final Thread thread = new Thread(aWorker);
+        thread.start();
+        final long deadline = System.currentTimeMillis() + FILL_TIMEOUT;
+        while (aBuffer.size() < aCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        aWorker.shutdown();
+        assertTrue(aWorker.awaitTermination(System.nanoTime() + TimeUnit.SECONDS.toNanos(5)));
+        thread.join();
+        assertEquals(aCount, aBuffer.size());
+    }
+
+    /**
+     * Tests that a failure of a recorded source is logged, counted and
+     * skipped, and that the worker ends with the stream.
+     *
+     * @throws FrameGrabber.Exception if the grabber cannot be started
+     */
+    @Test
+    public void testRecordedFailure() throws FrameGrabber.Exception {
+
+        final FlakyFrameGrabber grabber = new FlakyFrameGrabber(2, -1, 5);
+        final FrameRingBuffer buffer = new FrameRingBuffer(10, OverflowPolicy.BLOCK);
+        final CaptureMetrics metrics = new CaptureMetrics();
+        final MockComponentLog logger = new MockComponentLog("worker", this);
+        grabber.start();
+        try {
+            final FrameCaptureWorker worker = newWorker(grabber, true, buffer, metrics, logger);
+            worker.run();
+
+            assertTrue(worker.awaitTermination(System.nanoTime()));
+            assertEquals(5, buffer.size());
+            assertEquals(5, metrics.getFramesGrabbed());
+            assertEquals(1, metrics.getFramesFailed());
+            assertEquals(1, logger.getErrorMessages().size());
+            assertEquals(1, grabber.starts.get());
+        } finally {
+            grabber.stop();
+            buffer.release();
+        }
+    }
+
+    /**
+     * Tests that a live source is reopened after a failure and keeps being
+     * captured.
+     *
+     * @throws Exception if the grabber cannot be started or the test is interrupted
+     */
+    @Test
+    public void testLiveFailure() throws Exception {
+
+        final FlakyFrameGrabber grabber = new FlakyFrameGrabber(3, -1, Integer.MAX_VALUE);
+        final FrameRingBuffer buffer = new FrameRingBuffer(8, OverflowPolicy.BLOCK);
+        final CaptureMetrics metrics = new CaptureMetrics();
+        final MockComponentLog logger = new MockComponentLog("worker", this);
+        grabber.start();
+        try {
+            capture(newWorker(grabber, false, buffer, metrics, logger), buffer, 8);
+
+            assertEquals(1, metrics.getFramesFailed());
+            assertEquals(1, logger.getErrorMessages().size());
+            assertEquals(2, grabber.starts.get());
+        } finally {
+            grabber.stop();
+            buffer.release();
+        }
+    }
+
+    /**
+     * Tests that an interrupted live stream is reopened rather than taken for
+     * the end of the stream.
+     *
+     * @throws Exception if the grabber cannot be started or the test is interrupted
+     */
+    @Test
+    public void testLiveInterruption() throws Exception {
+
+        final FlakyFrameGrabber grabber = new FlakyFrameGrabber(-1, 3, Integer.MAX_VALUE);
+        final FrameRingBuffer buffer = new FrameRingBuffer(8, OverflowPolicy.BLOCK);
+        final CaptureMetrics metrics = new CaptureMetrics();
+        final MockComponentLog logger = new MockComponentLog("worker", this);
+        grabber.start();
+        try {
+            capture(newWorker(grabber, false, buffer, metrics, logger), buffer, 8);
+
+            assertEquals(0, metrics.getFramesFailed());
+            assertEquals(1, logger.getWarnMessages().size());
+            assertEquals(2, grabber.starts.get());
+        } finally {
+            grabber.stop();
+            buffer.release();
+        }
+    }
+}
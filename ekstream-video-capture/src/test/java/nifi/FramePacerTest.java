@@ -0,0 +1,53 @@
+package nifi;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Tests pacing frames with {@link FramePacer}.
+ */
+public class FramePacerTest {
+
+    /**
+     * Tests that recorded frames are paced by their timestamps, however fast
+     * they are decoded.
+     */
+    @Test
+    public void testMediaTime() {
+
+        final FramePacer pacer = new FramePacer(100, true);
+        assertTrue(pacer.acquire(0));
+        assertFalse(pacer.acquire(40000));
+        assertFalse(pacer.acquire(80000));
+        assertTrue(pacer.acquire(120000));
+        assertFalse(pacer.acquire(160000));
+        assertTrue(pacer.acquire(200000));
+    }
+
+    /**
+     * Tests that the schedule restarts when the timestamps go back.
+     */
+    @Test
+    public void testMediaTimeGoingBack() {
+
+        final FramePacer pacer = new FramePacer(100, true);
+        assertTrue(pacer.acquire(5000000));
+        assertTrue(pacer.acquire(0));
+        assertFalse(pacer.acquire(40000));
+        assertTrue(pacer.acquire(100000));
+    }
+
+    /**
+     * Tests that live frames are paced by the wall clock, whatever their
+     * timestamps.
+     */
+    @Test
+    public void testWallClock() {
+
+        final FramePacer pacer = new FramePacer(60000);
+        assertTrue(pacer.acquire(0));
+        assertFalse(pacer.acquire(Long.MAX_VALUE / 2));
+    }
+}
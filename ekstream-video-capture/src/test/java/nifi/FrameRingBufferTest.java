@@ -0,0 +1,227 @@
+package nifi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+/**
+ * Tests buffering frames in a {@link FrameRingBuffer}.
+ */
+public class FrameRingBufferTest {
+
+    /** Time to wait for other threads, in ms. */
+    private static final long JOIN_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * Buffers a frame.
+     *
+     * @param aBuffer buffer
+     * @param aFrameNumber frame number
+     * @return true if the frame has been buffered, false if it has been dropped
+     */
+    private static boolean offer(final FrameRingBuffer aBuffer, final long aFrameNumber) {
+
+        final CapturedFrame frame = aBuffer.claim();
+        if (frame == null) {
+            return false;
+        }
+        frame.setFrameNumber(aFrameNumber);
+        aBuffer.publish();
+        return true;
+    }
+
+    /**
+     * Takes the oldest buffered frame and checks its number.
+     *
+     * @param aBuffer buffer
+     * @param aFrameNumber expected frame number
+     */
+    private static void assertPolled(final FrameRingBuffer aBuffer, final long aFrameNumber) {
+
+        final CapturedFrame frame = new CapturedFrame();
+        assertTrue(aBuffer.poll(frame));
+        assertEquals(aFrameNumber, frame.getFrameNumber());
+    }
+
+    /**
+     * Tests that a full buffer overwrites its oldest frames when dropping
+     * the oldest.
+     */
+    @Test
+    public void testDropOldest() {
+
+        final FrameRingBuffer buffer = new FrameRingBuffer(3, OverflowPolicy.DROP_OLDEST);
+        for (int i = 1; i <= 5; i++) {
+            assertTrue(offer(buffer, i));
+        }
+        assertEquals(3, buffer.size());
+        assertEquals(2, buffer.getDroppedCount());
+        assertPolled(buffer, 3);
+        assertPolled(buffer, 4);
+        assertPolled(buffer, 5);
+        assertFalse(buffer.poll(new CapturedFrame()));
+        buffer.release();
+    }
+
+    /**
+     * Tests that a full buffer discards arriving frames when dropping the
+     * newest.
+     */
+    @Test
+    public void testDropNewest() {
+
+        final FrameRingBuffer buffer = new FrameRingBuffer(3, OverflowPolicy.DROP_NEWEST);
+        for (int i = 1; i <= 5; i++) {
+            assertEquals(i <= 3, offer(buffer, i));
+        }
+        assertEquals(3, buffer.size());
+        assertEquals(2, buffer.getDroppedCount());
+        assertPolled(buffer, 1);
+        assertPolled(buffer, 2);
+        assertPolled(buffer, 3);
+        buffer.release();
+    }
+
+    /**
+     * Tests that a full buffer makes the producer wait for a consumer when
+     * blocking, without dropping any frame.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testBlock() throws InterruptedException {
+
+        final FrameRingBuffer buffer = new FrameRingBuffer(2, OverflowPolicy.BLOCK);
+        assertTrue(offer(buffer, 1));
+        assertTrue(offer(buffer, 2));
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                offer(buffer, 3);
+            }
+        });
+        producer.start();
+        producer.join(100);
+        assertTrue(producer.isAlive());
+        assertEquals(2, buffer.size());
+
+        assertPolled(buffer, 1);
+        producer.join(JOIN_TIMEOUT);
+        assertFalse(producer.isAlive());
+        assertPolled(buffer, 2);
+        assertPolled(buffer, 3);
+        assertEquals(0, buffer.getDroppedCount());
+        buffer.release();
+    }
+
+    /**
+     * Tests that closing the buffer releases a blocked producer.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testCloseReleasesProducer() throws InterruptedException {
+
+        final FrameRingBuffer buffer = new FrameRingBuffer(1, OverflowPolicy.BLOCK);
+        assertTrue(offer(buffer, 1));
+        final AtomicReference<CapturedFrame> claimed = new AtomicReference<>(new CapturedFrame());
+        final Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                claimed.set(buffer.claim());
+            }
+        });
+        producer.start();
+        producer.join(100);
+        assertTrue(producer.isAlive());
+
+        buffer.close();
+        producer.join(JOIN_TIMEOUT);
+        assertFalse(producer.isAlive());
+        assertNull(claimed.get());
+        buffer.release();
+    }
+
+    /**
+     * Tests that a claim which is never published is handed out again.
+     */
+    @Test
+    public void testUnpublishedClaim() {
+
+        final FrameRingBuffer buffer = new FrameRingBuffer(2, OverflowPolicy.BLOCK);
+        final CapturedFrame frame = buffer.claim();
+        assertNotNull(frame);
+        assertEquals(0, buffer.size());
+        assertTrue(frame == buffer.claim());
+        buffer.publish();
+        assertEquals(1, buffer.size());
+        buffer.release();
+    }
+
+    /**
+     * Tests that concurrent consumers take each frame of a producer exactly
+     * once.
+     *
+     * @throws InterruptedException if the test is interrupted
+     */
+    @Test
+    public void testConcurrentConsumers() throws InterruptedException {
+
+        final int count = 100000;
+        final FrameRingBuffer buffer = new FrameRingBuffer(16, OverflowPolicy.BLOCK);
+        final BitSet taken = new BitSet(count);
+        final AtomicInteger duplicates = new AtomicInteger();
+        final AtomicInteger polled = new AtomicInteger();
+
+        final List<Thread> consumers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            consumers.add(new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    final CapturedFrame frame = new CapturedFrame();
+                    while (polled.get() < count) {
+                        if (!buffer.poll(frame)) {
+                            Thread.yield();
+                            continue;
+                        }
+                        polled.incrementAndGet();
+                        final int number = (int) frame.getFrameNumber();
+                        synchronized (taken) {
+                            if (taken.get(number)) {
+                                duplicates.incrementAndGet();
+                            }
+                            taken.set(number);
+                        }
+                    }
+                }
+            }));
+        }
+        for (Thread consumer : consumers) {
+            consumer.start();
+        }
+        for (int i = 0; i < count; i++) {
+            assertTrue(offer(buffer, i));
+        }
+        for (Thread consumer : consumers) {
+            consumer.join(JOIN_TIMEOUT);
+            assertFalse(consumer.isAlive());
+        }
+
+        assertEquals(0, duplicates.get());
+        assertEquals(count, taken.cardinality());
+        assertEquals(0, buffer.getDroppedCount());
+        assertEquals(0, buffer.size());
+        buffer.release();
+    }
+}
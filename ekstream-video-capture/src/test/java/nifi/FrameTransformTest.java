@@ -0,0 +1,142 @@
+package nifi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.bytedeco.javacpp.indexer.UByteIndexer;
+import org.bytedeco.javacpp.opencv_core;
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacpp.opencv_core.Scalar;
+import org.bytedeco.javacpp.opencv_imgproc;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests cropping, converting and resizing frames with {@link FrameTransform}.
+ */
+public class FrameTransformTest {
+
+    /** Color frame of 160x120 pixels. */
+    private Mat image;
+
+    /**
+     * Creates the frame, whose pixels hold their column in the blue channel.
+     */
+    @Before
+    public void setUp() {
+
+        image = new Mat(120, 160, opencv_core.CV_8UC3, new Scalar(0, 0, 0, 0));
+        final UByteIndexer pixels = image.createIndexer();
+        for (int y = 0; y < image.rows(); y++) {
+            for (int x = 0; x < image.cols(); x++) {
+                pixels.put(y, x, 0, x);
+            }
+        }
+        pixels.release();
+    }
+
+    /**
+     * Releases the frame.
+     */
+    @After
+    public void tearDown() {
+        image.release();
+    }
+
+    /**
+     * Applies a transform and checks the size of the result.
+     *
+     * @param aTransform transform
+     * @param aWidth expected width
+     * @param aHeight expected height
+     * @param aChannels expected number of channels
+     * @return transformed frame
+     */
+    private Mat assertApplied(final FrameTransform aTransform, final int aWidth, final int aHeight,
+            final int aChannels) {
+
+        final Mat result = aTransform.apply(image);
+        assertEquals(aWidth, result.cols());
+        assertEquals(aHeight, result.rows());
+        assertEquals(aChannels, result.channels());
+        return result;
+    }
+
+    /**
+     * Applies a transform, checks the size of the result, and releases the transform.
+     *
+     * @param aTransform transform
+     * @param aWidth expected width
+     * @param aHeight expected height
+     * @param aChannels expected number of channels
+     */
+    private void assertAppliedAndRelease(final FrameTransform aTransform, final int aWidth, final int aHeight,
+            final int aChannels) {
+
+        assertApplied(aTransform, aWidth, aHeight, aChannels);
+        aTransform.release();
+    }
+
+    /**
+     * Tests that a transform without any step leaves frames as they are.
+     */
+    @Test
+    public void testIdentity() {
+
+        final FrameTransform transform = new FrameTransform(null, 0, 0, opencv_imgproc.INTER_AREA, false);
+        assertTrue(transform.isIdentity());
+        assertAppliedAndRelease(transform, 160, 120, 3);
+    }
+
+    /**
+     * Tests that the region of interest is cut out.
+     */
+    @Test
+    public void testCrop() {
+
+        final FrameTransform transform =
+                new FrameTransform(new int[] {40, 20, 64, 48}, 0, 0, opencv_imgproc.INTER_AREA, false);
+        assertFalse(transform.isIdentity());
+        final Mat result = assertApplied(transform, 64, 48, 3);
+        final UByteIndexer pixels = result.createIndexer();
+        assertEquals(40, pixels.get(0, 0, 0));
+        pixels.release();
+        transform.release();
+    }
+
+    /**
+     * Tests that a region of interest reaching beyond the frame is clipped.
+     */
+    @Test
+    public void testCropClipped() {
+
+        final FrameTransform transform =
+                new FrameTransform(new int[] {150, 100, 64, 48}, 0, 0, opencv_imgproc.INTER_AREA, false);
+        assertAppliedAndRelease(transform, 10, 20, 3);
+    }
+
+    /**
+     * Tests that frames are resized, keeping the aspect ratio if only one
+     * dimension is given.
+     */
+    @Test
+    public void testScale() {
+
+        assertAppliedAndRelease(new FrameTransform(null, 80, 0, opencv_imgproc.INTER_AREA, false), 80, 60, 3);
+        assertAppliedAndRelease(new FrameTransform(null, 0, 30, opencv_imgproc.INTER_LINEAR, false), 40, 30, 3);
+        assertAppliedAndRelease(new FrameTransform(null, 100, 50, opencv_imgproc.INTER_AREA, false), 100, 50, 3);
+    }
+
+    /**
+     * Tests that all steps are applied in turn, the resize to the cropped frame.
+     */
+    @Test
+    public void testCropGrayScale() {
+
+        final FrameTransform transform =
+                new FrameTransform(new int[] {0, 0, 80, 80}, 40, 0, opencv_imgproc.INTER_AREA, true);
+        assertAppliedAndRelease(transform, 40, 40, 1);
+    }
+}
@@ -0,0 +1,44 @@
+package nifi;
+
+import static org.junit.Assert.assertEquals;
+
+import org.bytedeco.javacv.FrameGrabber;
+import org.junit.Test;
+
+/**
+ * Tests applying {@link GrabberSettings} to a grabber.
+ */
+public class GrabberSettingsTest {
+
+    /**
+     * Tests that settings left unset keep the grabber defaults.
+     *
+     * @throws FrameGrabber.Exception if the settings cannot be applied
+     */
+    @Test
+    public void testDefaults() throws FrameGrabber.Exception {
+
+        final FrameGrabber grabber = new SyntheticFrameGrabber(32, 24, 10, true, 0);
+        new GrabberSettings(0, 0, 0, null, null).apply(grabber);
+        assertEquals(32, grabber.getImageWidth());
+        assertEquals(24, grabber.getImageHeight());
+        assertEquals(10, grabber.getFrameRate(), 0);
+        assertEquals(FrameGrabber.ImageMode.GRAY, grabber.getImageMode());
+    }
+
+    /**
+     * Tests that settings which are set override the grabber defaults.
+     *
+     * @throws FrameGrabber.Exception if the settings cannot be applied
+     */
+    @Test
+    public void testOverrides() throws FrameGrabber.Exception {
+
+        final FrameGrabber grabber = new SyntheticFrameGrabber(32, 24, 10, true, 0);
+        new GrabberSettings(64, 48, 5, null, FrameGrabber.ImageMode.COLOR).apply(grabber);
+        assertEquals(64, grabber.getImageWidth());
+        assertEquals(48, grabber.getImageHeight());
+        assertEquals(5, grabber.getFrameRate(), 0);
+        assertEquals(FrameGrabber.ImageMode.COLOR, grabber.getImageMode());
+    }
+}
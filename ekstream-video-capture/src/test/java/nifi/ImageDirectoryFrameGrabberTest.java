@@ -0,0 +1,232 @@
+package nifi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.bytedeco.javacpp.indexer.UByteIndexer;
+import org.bytedeco.javacpp.opencv_core;
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacpp.opencv_core.Scalar;
+import org.bytedeco.javacpp.opencv_imgcodecs;
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.bytedeco.javacv.OpenCVFrameConverter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Tests replaying a directory of images with {@link ImageDirectoryFrameGrabber}.
+ */
+public class ImageDirectoryFrameGrabberTest {
+
+    /** Temporary image directory. */
+    private Path directory;
+
+    /**
+     * Creates the image directory: three images of different sizes, written
+     * out of name order, an unreadable image and a file which is no image.
+     *
+     * @throws IOException if the directory cannot be created
+     */
+    @Before
+    public void setUp() throws IOException {
+
+        directory = Files.createTempDirectory("image-directory");
+        writeImage("b.png", 32, 16);
+        writeImage("c.bmp", 8, 4);
+        writeImage("a.png", 16, 8);
+        Files.write(directory.resolve("broken.png"), "no image".getBytes(StandardCharsets.US_ASCII));
+        Files.write(directory.resolve("notes.txt"), "no image".getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Deletes the image directory.
+     *
+     * @throws IOException if the directory cannot be deleted
+     */
+    @After
+    public void tearDown() throws IOException {
+
+        for (File file : directory.toFile().listFiles()) {
+            Files.delete(file.toPath());
+        }
+        Files.delete(directory);
+    }
+
+    /**
+     * Writes an image into the image directory.
+     *
+     * @param aName file name
+     * @param aWidth image width
+     * @param aHeight image height
+     */
+    private void writeImage(final String aName, final int aWidth, final int aHeight) {
+
+        final Mat image = new Mat(aHeight, aWidth, opencv_core.CV_8UC3, new Scalar(10, 20, 30, 0));
+        opencv_imgcodecs.imwrite(directory.resolve(aName).toString(), image);
+        image.release();
+    }
+
+    /**
+     * Grabs the next frame and checks its size.
+     *
+     * @param aGrabber started grabber
+     * @param aWidth expected width
+     * @param aHeight expected height
+     * @param aChannels expected number of channels
+     * @throws FrameGrabber.Exception if the frame cannot be grabbed
+     */
+    private static void assertFrame(final FrameGrabber aGrabber, final int aWidth, final int aHeight,
+            final int aChannels) throws FrameGrabber.Exception {
+
+        final Frame frame = aGrabber.grab();
+        assertNotNull(frame);
+        assertEquals(aWidth, frame.imageWidth);
+        assertEquals(aHeight, frame.imageHeight);
+        assertEquals(aChannels, frame.imageChannels);
+    }
+
+    /**
+     * Tests that images are replayed in file name order, skipping files that
+     * cannot be read, up to the end of the stream.
+     *
+     * @throws FrameGrabber.Exception if the images cannot be grabbed
+     */
+    @Test
+    public void testFileNameOrder() throws FrameGrabber.Exception {
+
+        final FrameGrabber grabber = new ImageDirectoryFrameGrabber(directory.toFile());
+        grabber.setFrameRate(10);
+        grabber.start();
+        try {
+            assertFrame(grabber, 16, 8, 3);
+            assertEquals(0, grabber.getTimestamp());
+            assertFrame(grabber, 32, 16, 3);
+            assertEquals(100000, grabber.getTimestamp());
+            assertFrame(grabber, 8, 4, 3);
+            assertEquals(300000, grabber.getTimestamp());
+            assertEquals(4, grabber.getFrameNumber());
+
+            assertNull(grabber.grab());
+            assertNull(grabber.grab());
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    /**
+     * Tests that images are one second apart without a frame rate, so that
+     * they can be paced by their timestamps.
+     *
+     * @throws FrameGrabber.Exception if the images cannot be grabbed
+     */
+    @Test
+    public void testDefaultFrameRate() throws FrameGrabber.Exception {
+
+        final FrameGrabber grabber = new ImageDirectoryFrameGrabber(directory.toFile());
+        grabber.start();
+        try {
+            assertFrame(grabber, 16, 8, 3);
+            assertEquals(0, grabber.getTimestamp());
+            assertFrame(grabber, 32, 16, 3);
+            assertEquals(1000000, grabber.getTimestamp());
+            assertFrame(grabber, 8, 4, 3);
+            assertEquals(3000000, grabber.getTimestamp());
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    /**
+     * Tests that images of the same size are each delivered with their own
+     * pixels, converted as the capture worker does.
+     *
+     * @throws Exception if the images cannot be written or grabbed
+     */
+    @Test
+    public void testEquallySizedImages() throws Exception {
+
+        final Path same = Files.createDirectory(directory.resolve("same"));
+        final int count = 20;
+        for (int i = 0; i < count; i++) {
+            Mat image = new Mat(8, 8, opencv_core.CV_8UC1, new Scalar(10 * i, 0, 0, 0));
+            opencv_imgcodecs.imwrite(same.resolve(String.format("%02d.png", i)).toString(), image);
+            image.release();
+        }
+        final FrameGrabber grabber = new ImageDirectoryFrameGrabber(same.toFile());
+        grabber.setImageMode(FrameGrabber.ImageMode.GRAY);
+        grabber.start();
+        try {
+            final OpenCVFrameConverter.ToMat converter = new OpenCVFrameConverter.ToMat();
+            for (int i = 0; i < count; i++) {
+                Mat image = converter.convert(grabber.grab());
+                assertFalse(image.empty());
+                UByteIndexer pixels = image.createIndexer();
+                assertEquals(10 * i, pixels.get(0, 0));
+                pixels.release();
+            }
+        } finally {
+            grabber.stop();
+            for (File file : same.toFile().listFiles()) {
+                Files.delete(file.toPath());
+            }
+            Files.delete(same);
+        }
+    }
+
+    /**
+     * Tests that images are converted to grayscale in gray image mode.
+     *
+     * @throws FrameGrabber.Exception if the images cannot be grabbed
+     */
+    @Test
+    public void testGrayImageMode() throws FrameGrabber.Exception {
+
+        final FrameGrabber grabber = new ImageDirectoryFrameGrabber(directory.toFile());
+        grabber.setImageMode(FrameGrabber.ImageMode.GRAY);
+        grabber.start();
+        try {
+            assertFrame(grabber, 16, 8, 1);
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    /**
+     * Tests that an empty directory ends the stream right away.
+     *
+     * @throws Exception if the directory cannot be created or grabbed
+     */
+    @Test
+    public void testEmptyDirectory() throws Exception {
+
+        final Path empty = Files.createDirectory(directory.resolve("empty"));
+        final FrameGrabber grabber = new ImageDirectoryFrameGrabber(empty.toFile());
+        grabber.start();
+        try {
+            assertNull(grabber.grab());
+        } finally {
+            grabber.stop();
+            Files.delete(empty);
+        }
+    }
+
+    /**
+     * Tests that grabbing before the grabber is started fails.
+     *
+     * @throws FrameGrabber.Exception always
+     */
+    @Test(expected = FrameGrabber.Exception.class)
+    public void testNotStarted() throws FrameGrabber.Exception {
+        new ImageDirectoryFrameGrabber(directory.toFile()).grab();
+    }
+}
@@ -0,0 +1,151 @@
+package nifi;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.processor.ProcessContext;
+import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.processor.exception.ProcessException;
+import org.apache.nifi.util.MockFlowFile;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.junit.Test;
+
+/**
+ * Tests parsing the capture sources of {@link MultiVideoCapturer}, and
+ * capturing several of them.
+ */
+public class MultiVideoCapturerTest {
+
+    /** Number of frames buffered per source. */
+    private static final int FRAME_COUNT = 10;
+
+    /** Ids of the captured sources. */
+    private static final String[] SOURCE_IDS = {"a", "b", "c"};
+
+    /** Time a trigger waits for the frame buffers to fill up, in ms. */
+    private static final long FILL_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * A capturer whose triggers wait until the frame buffers of all sources
+     * are full, so that a single trigger drains all of them.
+     */
+    public static class FilledMultiVideoCapturer extends MultiVideoCapturer {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onTrigger(final ProcessContext aContext, final ProcessSession aSession)
+                throws ProcessException {
+
+            final long deadline = System.currentTimeMillis() + FILL_TIMEOUT;
+            while (getBufferedFrameCount() < SOURCE_IDS.length * FRAME_COUNT
+                    && System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            super.onTrigger(aContext, aSession);
+        }
+    }
+
+    /**
+     * Tests that sources without an id are identified by their position.
+     */
+    @Test
+    public void testPositionalIds() {
+
+        final Map<String, String> sources = MultiVideoCapturer.parseSources("0, rtsp://camera/stream");
+        assertEquals(Arrays.asList("0", "1"), new ArrayList<>(sources.keySet()));
+        assertEquals("0", sources.get("0"));
+        assertEquals("rtsp://camera/stream", sources.get("1"));
+    }
+
+    /**
+     * Tests that explicit ids are kept, in the given order, and that query
+     * parameters of a source are not taken for an id.
+     */
+    @Test
+    public void testExplicitIds() {
+
+        final Map<String, String> sources = MultiVideoCapturer.parseSources(
+                "entrance=rtsp://camera/stream?channel=1\r\n\r\nyard.2=synthetic://32x24?fps=0\nsynthetic://?seed=1");
+        assertEquals(Arrays.asList("entrance", "yard.2", "2"), new ArrayList<>(sources.keySet()));
+        assertEquals("rtsp://camera/stream?channel=1", sources.get("entrance"));
+        assertEquals("synthetic://?seed=1", sources.get("2"));
+    }
+
+    /**
+     * Tests that an id used twice is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testDuplicateId() {
+        MultiVideoCapturer.parseSources("a=0,a=1");
+    }
+
+    /**
+     * Tests that a list without any source is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testNoSource() {
+        MultiVideoCapturer.parseSources(" ,\n, ");
+    }
+
+    /**
+     * Tests that the capture sources are validated with the processor.
+     */
+    @Test
+    public void testValidation() {
+
+        final TestRunner runner = TestRunners.newTestRunner(MultiVideoCapturer.class);
+        runner.setProperty(MultiVideoCapturer.CAPTURE_SOURCES, "a=synthetic://,a=synthetic://");
+        runner.assertNotValid();
+        runner.setProperty(MultiVideoCapturer.CAPTURE_SOURCES, "a=synthetic://,b=synthetic://");
+        runner.assertValid();
+    }
+
+    /**
+     * Tests that the frames of all sources are tagged with their source id,
+     * and that the sources are drained in turn, each in capture order.
+     */
+    @Test
+    public void testRoundRobin() {
+
+        final StringBuilder sources = new StringBuilder();
+        for (int i = 0; i < SOURCE_IDS.length; i++) {
+            sources.append(SOURCE_IDS[i]).append("=synthetic://").append(16 * (i + 1)).append("x24?fps=0\n");
+        }
+        final TestRunner runner = TestRunners.newTestRunner(FilledMultiVideoCapturer.class);
+        runner.setProperty(MultiVideoCapturer.CAPTURE_SOURCES, sources.toString());
+        runner.setProperty(VideoCapturer.FRAME_INTERVAL, "0");
+        runner.setProperty(VideoCapturer.SAVE_IMAGES, "false");
+        runner.setProperty(VideoCapturer.BUFFER_SIZE, String.valueOf(FRAME_COUNT));
+        runner.setProperty(VideoCapturer.OVERFLOW_POLICY, OverflowPolicy.BLOCK.getValue());
+        runner.setProperty(VideoCapturer.FRAMES_PER_BATCH, String.valueOf(SOURCE_IDS.length * FRAME_COUNT));
+        runner.run(1, true, true);
+
+        final List<MockFlowFile> flowFiles = runner.getFlowFilesForRelationship(VideoCapturer.REL_SUCCESS);
+        assertEquals(SOURCE_IDS.length * FRAME_COUNT, flowFiles.size());
+        final long[] previous = new long[SOURCE_IDS.length];
+        for (int i = 0; i < flowFiles.size(); i++) {
+            MockFlowFile flowFile = flowFiles.get(i);
+            int source = i % SOURCE_IDS.length;
+            flowFile.assertAttributeEquals(VideoCapturer.SOURCE_ID_ATTRIBUTE, SOURCE_IDS[source]);
+            flowFile.assertAttributeEquals(VideoCapturer.WIDTH_ATTRIBUTE, String.valueOf(16 * (source + 1)));
+            long frameNumber = Long.parseLong(flowFile.getAttribute(VideoCapturer.FRAME_NUMBER_ATTRIBUTE));
+            if (i >= SOURCE_IDS.length) {
+                assertEquals(previous[source] + 1, frameNumber);
+            }
+            previous[source] = frameNumber;
+        }
+    }
+}
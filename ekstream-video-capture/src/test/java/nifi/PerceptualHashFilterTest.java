@@ -0,0 +1,144 @@
+package nifi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.bytedeco.javacpp.indexer.UByteIndexer;
+import org.bytedeco.javacpp.opencv_core;
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.junit.Test;
+
+/**
+ * Tests suppressing near duplicates with {@link PerceptualHashFilter}.
+ */
+public class PerceptualHashFilterTest {
+
+    /** Hash of a frame getting brighter to the right. */
+    private static final long RISING_HASH = 0L;
+
+    /** Hash of a frame getting darker to the right. */
+    private static final long FALLING_HASH = -1L;
+
+    /** Hash of a frame getting brighter to the right in its upper half and darker in its lower half. */
+    private static final long MIXED_HASH = 0xFFFFFFFFL;
+
+    /**
+     * Creates a grayscale frame of horizontal gradients, which are rising or
+     * falling in its upper and lower half.
+     *
+     * @param aUpperRising whether the upper half gets brighter to the right
+     * @param aLowerRising whether the lower half gets brighter to the right
+     * @return frame
+     */
+    private static Mat gradient(final boolean aUpperRising, final boolean aLowerRising) {
+
+        final Mat image = new Mat(80, 90, opencv_core.CV_8UC1);
+        final UByteIndexer pixels = image.createIndexer();
+        for (int y = 0; y < image.rows(); y++) {
+            boolean rising = y < image.rows() / 2 ? aUpperRising : aLowerRising;
+            for (int x = 0; x < image.cols(); x++) {
+                int step = rising ? x / 10 : 8 - x / 10;
+                pixels.put(y, x, 20 + 20 * step);
+            }
+        }
+        pixels.release();
+        return image;
+    }
+
+    /**
+     * Checks whether a filter accepts a frame, and buffers it if so.
+     *
+     * @param aFilter filter
+     * @param aImage frame, released by this method
+     * @return true if the frame has been accepted
+     */
+    private static boolean offer(final PerceptualHashFilter aFilter, final Mat aImage) {
+
+        try {
+            if (!aFilter.accept(aImage)) {
+                return false;
+            }
+            aFilter.buffered(new CapturedFrame());
+            return true;
+        } finally {
+            aImage.release();
+        }
+    }
+
+    /**
+     * Tests that the hash of a buffered frame is attached to it.
+     */
+    @Test
+    public void testHashAttached() {
+
+        final PerceptualHashFilter filter = new PerceptualHashFilter(4, 0);
+        final long[] hashes = {RISING_HASH, FALLING_HASH, MIXED_HASH};
+        final Mat[] images = {gradient(true, true), gradient(false, false), gradient(true, false)};
+        try {
+            for (int i = 0; i < images.length; i++) {
+                CapturedFrame frame = new CapturedFrame();
+                assertTrue(filter.accept(images[i]));
+                filter.buffered(frame);
+                assertTrue(frame.hasPerceptualHash());
+                assertEquals(hashes[i], frame.getPerceptualHash());
+            }
+        } finally {
+            for (Mat image : images) {
+                image.release();
+            }
+            filter.release();
+        }
+    }
+
+    /**
+     * Tests that frames are rejected within the Hamming distance of a
+     * buffered hash, and accepted beyond it.
+     */
+    @Test
+    public void testDistance() {
+
+        // the mixed hash is 32 bits away from both others
+        final PerceptualHashFilter near = new PerceptualHashFilter(4, 31);
+        final PerceptualHashFilter far = new PerceptualHashFilter(4, 32);
+        try {
+            assertTrue(offer(near, gradient(true, true)));
+            assertFalse(offer(near, gradient(true, true)));
+            assertTrue(offer(near, gradient(true, false)));
+
+            assertTrue(offer(far, gradient(true, true)));
+            assertFalse(offer(far, gradient(true, false)));
+            assertTrue(offer(far, gradient(false, false)));
+        } finally {
+            near.release();
+            far.release();
+        }
+    }
+
+    /**
+     * Tests that frames are only compared with the hashes in the window.
+     */
+    @Test
+    public void testWindow() {
+
+        final PerceptualHashFilter filter = new PerceptualHashFilter(2, 0);
+        try {
+            assertTrue(offer(filter, gradient(true, true)));
+            assertTrue(offer(filter, gradient(false, false)));
+            assertFalse(offer(filter, gradient(true, true)));
+            assertTrue(offer(filter, gradient(true, false)));
+            // the rising frame has left the window
+            assertTrue(offer(filter, gradient(true, true)));
+        } finally {
+            filter.release();
+        }
+    }
+
+    /**
+     * Tests that a window which cannot hold a hash is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyWindow() {
+        new PerceptualHashFilter(0, 0);
+    }
+}
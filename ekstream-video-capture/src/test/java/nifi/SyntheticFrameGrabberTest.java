@@ -0,0 +1,170 @@
+package nifi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.bytedeco.javacv.Frame;
+import org.bytedeco.javacv.FrameGrabber;
+import org.junit.Test;
+
+/**
+ * Tests generating frames with {@link SyntheticFrameGrabber}.
+ */
+public class SyntheticFrameGrabberTest {
+
+    /**
+     * Grabs the pixels of the first frames of a synthetic source.
+     *
+     * @param aSource synthetic source
+     * @param aCount number of frames
+     * @return pixels of every frame
+     * @throws FrameGrabber.Exception if the frames cannot be generated
+     */
+    private static byte[][] grabPixels(final String aSource, final int aCount) throws FrameGrabber.Exception {
+
+        final FrameGrabber grabber = SyntheticFrameGrabber.fromSource(aSource);
+        grabber.start();
+        try {
+            final byte[][] pixels = new byte[aCount][];
+            for (int i = 0; i < aCount; i++) {
+                ByteBuffer image = (ByteBuffer) grabber.grab().image[0];
+                pixels[i] = new byte[image.remaining()];
+                image.get(pixels[i]);
+            }
+            return pixels;
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    /**
+     * Tests the defaults of a source without any parameters.
+     *
+     * @throws FrameGrabber.Exception if the source is rejected
+     */
+    @Test
+    public void testDefaults() throws FrameGrabber.Exception {
+
+        final FrameGrabber grabber = SyntheticFrameGrabber.fromSource("synthetic://");
+        assertEquals(SyntheticFrameGrabber.DEFAULT_WIDTH, grabber.getImageWidth());
+        assertEquals(SyntheticFrameGrabber.DEFAULT_HEIGHT, grabber.getImageHeight());
+        assertEquals(25, grabber.getFrameRate(), 0);
+        assertEquals(FrameGrabber.ImageMode.COLOR, grabber.getImageMode());
+    }
+
+    /**
+     * Tests a source with every parameter given.
+     *
+     * @throws FrameGrabber.Exception if the frames cannot be generated
+     */
+    @Test
+    public void testFullSpec() throws FrameGrabber.Exception {
+
+        final FrameGrabber grabber = SyntheticFrameGrabber.fromSource("synthetic://32x24?fps=0&format=gray&seed=7");
+        assertEquals(0, grabber.getFrameRate(), 0);
+        assertEquals(FrameGrabber.ImageMode.GRAY, grabber.getImageMode());
+        grabber.start();
+        try {
+            final Frame frame = grabber.grab();
+            assertEquals(32, frame.imageWidth);
+            assertEquals(24, frame.imageHeight);
+            assertEquals(1, frame.imageChannels);
+            assertEquals(1, grabber.getFrameNumber());
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    /**
+     * Tests that a malformed size is rejected.
+     *
+     * @throws FrameGrabber.Exception always
+     */
+    @Test(expected = FrameGrabber.Exception.class)
+    public void testMalformedSize() throws FrameGrabber.Exception {
+        SyntheticFrameGrabber.fromSource("synthetic://32by24");
+    }
+
+    /**
+     * Tests that a malformed parameter is rejected.
+     *
+     * @throws FrameGrabber.Exception always
+     */
+    @Test(expected = FrameGrabber.Exception.class)
+    public void testMalformedParameter() throws FrameGrabber.Exception {
+        SyntheticFrameGrabber.fromSource("synthetic://?fps=fast");
+    }
+
+    /**
+     * Tests that an empty frame size is rejected.
+     *
+     * @throws FrameGrabber.Exception always
+     */
+    @Test(expected = FrameGrabber.Exception.class)
+    public void testEmptySize() throws FrameGrabber.Exception {
+        SyntheticFrameGrabber.fromSource("synthetic://0x24");
+    }
+
+    /**
+     * Tests that a negative frame rate is rejected.
+     *
+     * @throws FrameGrabber.Exception always
+     */
+    @Test(expected = FrameGrabber.Exception.class)
+    public void testNegativeFrameRate() throws FrameGrabber.Exception {
+        SyntheticFrameGrabber.fromSource("synthetic://?fps=-1");
+    }
+
+    /**
+     * Tests that the same seed generates the same frames, and different seeds
+     * and frames differ.
+     *
+     * @throws FrameGrabber.Exception if the frames cannot be generated
+     */
+    @Test
+    public void testDeterminism() throws FrameGrabber.Exception {
+
+        final byte[][] first = grabPixels("synthetic://64x48?fps=0&seed=1", 3);
+        final byte[][] second = grabPixels("synthetic://64x48?fps=0&seed=1", 3);
+        final byte[][] other = grabPixels("synthetic://64x48?fps=0&seed=2", 3);
+        for (int i = 0; i < first.length; i++) {
+            assertArrayEquals(first[i], second[i]);
+            assertFalse(Arrays.equals(first[i], other[i]));
+        }
+        assertFalse(Arrays.equals(first[0], first[1]));
+    }
+
+    /**
+     * Tests that timestamps follow the frame rate.
+     *
+     * @throws FrameGrabber.Exception if the frames cannot be generated
+     */
+    @Test
+    public void testTimestamps() throws FrameGrabber.Exception {
+
+        final FrameGrabber grabber = SyntheticFrameGrabber.fromSource("synthetic://16x16?fps=1000");
+        grabber.start();
+        try {
+            for (int i = 0; i < 3; i++) {
+                grabber.grab();
+                assertEquals(1000L * i, grabber.getTimestamp());
+            }
+        } finally {
+            grabber.stop();
+        }
+    }
+
+    /**
+     * Tests that grabbing before the grabber is started fails.
+     *
+     * @throws FrameGrabber.Exception always
+     */
+    @Test(expected = FrameGrabber.Exception.class)
+    public void testNotStarted() throws FrameGrabber.Exception {
+        new SyntheticFrameGrabber(16, 16, 0, false, 0).grab();
+    }
+}
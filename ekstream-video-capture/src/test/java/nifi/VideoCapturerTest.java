@@ -0,0 +1,332 @@
+package nifi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.nifi.processor.ProcessContext;
+import org.apache.nifi.processor.ProcessSession;
+import org.apache.nifi.processor.exception.ProcessException;
+import org.apache.nifi.util.MockFlowFile;
+import org.apache.nifi.util.TestRunner;
+import org.apache.nifi.util.TestRunners;
+import org.bytedeco.javacpp.opencv_core;
+import org.bytedeco.javacpp.opencv_core.Mat;
+import org.bytedeco.javacpp.opencv_core.Scalar;
+import org.bytedeco.javacpp.opencv_imgcodecs;
+import org.junit.Test;
+
+/**
+ * Tests {@link VideoCapturer} on synthetic capture sources.
+ */
+public class VideoCapturerTest {
+
+    /** Number of frames every processor transfers. */
+    private static final int FRAME_COUNT = 20;
+
+    /** Time a trigger waits for the frame buffer to fill up, in ms. */
+    private static final long FILL_TIMEOUT = TimeUnit.SECONDS.toMillis(30);
+
+    /**
+     * A capturer whose triggers wait until the frame buffer is full. The mock
+     * framework unschedules a processor after every run, which halts capturing,
+     * so all frames have to be transferred by the single trigger of a run.
+     */
+    public static class FilledVideoCapturer extends VideoCapturer {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onTrigger(final ProcessContext aContext, final ProcessSession aSession)
+                throws ProcessException {
+
+            final long deadline = System.currentTimeMillis() + FILL_TIMEOUT;
+            while (getBufferedFrameCount() < FRAME_COUNT && System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            super.onTrigger(aContext, aSession);
+        }
+    }
+
+    /**
+     * A capturer whose triggers wait until a frame is buffered, so that every
+     * trigger of a run transfers a frame.
+     */
+    public static class PrimedVideoCapturer extends VideoCapturer {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onTrigger(final ProcessContext aContext, final ProcessSession aSession)
+                throws ProcessException {
+
+            final long deadline = System.currentTimeMillis() + FILL_TIMEOUT;
+            while (getBufferedFrameCount() == 0 && System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            super.onTrigger(aContext, aSession);
+        }
+    }
+
+    /**
+     * A capturer whose triggers wait until a number of frames has been grabbed,
+     * whether or not they were buffered.
+     */
+    public static class GrabbingVideoCapturer extends VideoCapturer {
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void onTrigger(final ProcessContext aContext, final ProcessSession aSession)
+                throws ProcessException {
+
+            final long deadline = System.currentTimeMillis() + FILL_TIMEOUT;
+            while (getMetrics().getFramesGrabbed() < FRAME_COUNT && System.currentTimeMillis() < deadline) {
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            super.onTrigger(aContext, aSession);
+        }
+    }
+
+    /**
+     * Creates a test runner which transfers the first frames of a synthetic
+     * source in a single batch, without dropping any.
+     *
+     * @param aSource synthetic capture source
+     * @return test runner
+     */
+    private static TestRunner newRunner(final String aSource) {
+
+        final TestRunner runner = TestRunners.newTestRunner(FilledVideoCapturer.class);
+        runner.setProperty(VideoCapturer.CAPTURE_SOURCE, aSource);
+        runner.setProperty(VideoCapturer.FRAME_INTERVAL, "0");
+        runner.setProperty(VideoCapturer.SAVE_IMAGES, "false");
+        runner.setProperty(VideoCapturer.BUFFER_SIZE, String.valueOf(FRAME_COUNT));
+        runner.setProperty(VideoCapturer.OVERFLOW_POLICY, OverflowPolicy.BLOCK.getValue());
+        runner.setProperty(VideoCapturer.FRAMES_PER_BATCH, String.valueOf(FRAME_COUNT));
+        return runner;
+    }
+
+    /**
+     * Schedules a processor, triggers it once, and stops it.
+     *
+     * @param aRunner test runner
+     * @return callable returning the transferred flow files
+     */
+    private static Callable<List<MockFlowFile>> capture(final TestRunner aRunner) {
+
+        return new Callable<List<MockFlowFile>>() {
+
+            @Override
+            public List<MockFlowFile> call() {
+
+                aRunner.run(1, true, true);
+                return aRunner.getFlowFilesForRelationship(VideoCapturer.REL_SUCCESS);
+            }
+        };
+    }
+
+    /**
+     * Checks that flow files hold consecutive frames of the expected size.
+     *
+     * @param aFlowFiles transferred flow files
+     * @param aWidth expected frame width
+     * @param aHeight expected frame height
+     */
+    private static void assertFrames(final List<MockFlowFile> aFlowFiles, final int aWidth, final int aHeight) {
+
+        assertEquals(FRAME_COUNT, aFlowFiles.size());
+        final long first = Long.parseLong(aFlowFiles.get(0).getAttribute(VideoCapturer.FRAME_NUMBER_ATTRIBUTE));
+        for (int i = 0; i < aFlowFiles.size(); i++) {
+            MockFlowFile flowFile = aFlowFiles.get(i);
+            flowFile.assertAttributeEquals(VideoCapturer.WIDTH_ATTRIBUTE, String.valueOf(aWidth));
+            flowFile.assertAttributeEquals(VideoCapturer.HEIGHT_ATTRIBUTE, String.valueOf(aHeight));
+            flowFile.assertAttributeEquals(VideoCapturer.SOURCE_ID_ATTRIBUTE, "0");
+            flowFile.assertAttributeEquals(VideoCapturer.FRAME_NUMBER_ATTRIBUTE, String.valueOf(first + i));
+        }
+    }
+
+    /**
+     * Tests that processors capturing concurrently each transfer all frames of
+     * their own source, and only those, in the order they were grabbed.
+     *
+     * @throws Exception if a processor fails
+     */
+    @Test
+    public void testConcurrentProcessors() throws Exception {
+
+        final int[] widths = {64, 48, 32, 16};
+        final ExecutorService executor = Executors.newFixedThreadPool(widths.length);
+        try {
+            final List<Future<List<MockFlowFile>>> results = new ArrayList<>();
+            for (int width : widths) {
+                results.add(executor.submit(capture(newRunner("synthetic://" + width + "x24?fps=0&seed=" + width))));
+            }
+            for (int i = 0; i < widths.length; i++) {
+                assertFrames(results.get(i).get(), widths[i], 24);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that stopping a processor leaves another one capturing.
+     *
+     * @throws Exception if a processor fails
+     */
+    @Test
+    public void testIndependentLifecycles() throws Exception {
+
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            // the slow source is still capturing while the fast one is stopped
+            final Future<List<MockFlowFile>> slow = executor.submit(capture(newRunner("synthetic://32x24?fps=50")));
+            assertFrames(capture(newRunner("synthetic://48x24?fps=0")).call(), 48, 24);
+            assertFrames(slow.get(), 32, 24);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Tests that frames encoded on the encoder threads are still transferred
+     * in the order they were grabbed.
+     *
+     * @throws Exception if the processor fails
+     */
+    @Test
+    public void testParallelEncoding() throws Exception {
+
+        final TestRunner runner = newRunner("synthetic://32x24?fps=0");
+        runner.setProperty(VideoCapturer.ENCODER_THREADS, "0");
+        assertFrames(capture(runner).call(), 32, 24);
+    }
+
+    /**
+     * Tests that the counters are reported by triggers which transfer no frames.
+     */
+    @Test
+    public void testIdleCounters() {
+
+        // a single frame is due, and it waits for a bundle which is never full
+        final TestRunner runner = TestRunners.newTestRunner(GrabbingVideoCapturer.class);
+        runner.setProperty(VideoCapturer.CAPTURE_SOURCE, "synthetic://32x24?fps=0");
+        runner.setProperty(VideoCapturer.FRAME_INTERVAL, String.valueOf(TimeUnit.HOURS.toMillis(1)));
+        runner.setProperty(VideoCapturer.SAVE_IMAGES, "false");
+        runner.setProperty(VideoCapturer.BUFFER_SIZE, "2");
+        runner.setProperty(VideoCapturer.FRAMES_PER_BUNDLE, "2");
+        runner.setProperty(VideoCapturer.MAX_BATCH_LATENCY, String.valueOf(TimeUnit.HOURS.toMillis(1)));
+        runner.run(1, true, true);
+
+        runner.assertTransferCount(VideoCapturer.REL_SUCCESS, 0);
+        assertTrue(runner.getCounterValue(VideoCapturer.GRABBED_FRAMES_COUNTER) >= FRAME_COUNT);
+    }
+
+    /**
+     * Tests that face crops are only valid with a face cascade.
+     *
+     * @throws Exception if the cascade file cannot be created
+     */
+    @Test
+    public void testFaceOutputRequiresCascade() throws Exception {
+
+        final TestRunner runner = newRunner("synthetic://");
+        runner.setProperty(VideoCapturer.FACE_OUTPUT, VideoCapturer.FACE_OUTPUT_CROPS);
+        runner.assertNotValid();
+        runner.setProperty(VideoCapturer.FACE_OUTPUT, VideoCapturer.FACE_OUTPUT_BOTH);
+        runner.assertNotValid();
+
+        final File cascade = File.createTempFile("cascade", ".xml");
+        try {
+            runner.setProperty(VideoCapturer.FACE_CASCADE, cascade.getPath());
+            runner.assertValid();
+            runner.removeProperty(VideoCapturer.FACE_CASCADE);
+            runner.setProperty(VideoCapturer.FACE_OUTPUT, VideoCapturer.FACE_OUTPUT_FRAMES);
+            runner.assertValid();
+        } finally {
+            cascade.delete();
+        }
+    }
+
+    /**
+     * Tests that every image of a directory is transferred with the default
+     * frame interval and frame rate.
+     *
+     * @throws Exception if the images cannot be written or captured
+     */
+    @Test
+    public void testImageDirectory() throws Exception {
+
+        final Path directory = Files.createTempDirectory("images");
+        final Path archive = Files.createTempDirectory("archive");
+        try {
+            final Mat image = new Mat(24, 32, opencv_core.CV_8UC3, new Scalar(10, 20, 30, 0));
+            for (int i = 0; i < 3; i++) {
+                opencv_imgcodecs.imwrite(directory.resolve("image" + i + ".png").toString(), image);
+            }
+            image.release();
+
+            final TestRunner runner = TestRunners.newTestRunner(PrimedVideoCapturer.class);
+            runner.setProperty(VideoCapturer.CAPTURE_SOURCE, directory.toString());
+            runner.setProperty(VideoCapturer.ARCHIVE_DIRECTORY, archive.toString());
+            runner.run(3, true, true);
+
+            final List<MockFlowFile> flowFiles = runner.getFlowFilesForRelationship(VideoCapturer.REL_SUCCESS);
+            assertEquals(3, flowFiles.size());
+            for (int i = 0; i < flowFiles.size(); i++) {
+                flowFiles.get(i).assertAttributeEquals(VideoCapturer.FRAME_NUMBER_ATTRIBUTE, String.valueOf(i + 1));
+            }
+        } finally {
+            deleteDirectory(directory);
+            deleteDirectory(archive);
+        }
+    }
+
+    /**
+     * Deletes a directory with everything in it.
+     *
+     * @param aDirectory directory
+     * @throws IOException if the directory cannot be deleted
+     */
+    private static void deleteDirectory(final Path aDirectory) throws IOException {
+
+        for (File file : aDirectory.toFile().listFiles()) {
+            if (file.isDirectory()) {
+                deleteDirectory(file.toPath());
+            } else {
+                Files.delete(file.toPath());
+            }
+        }
+        Files.delete(aDirectory);
+    }
+}